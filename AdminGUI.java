@@ -238,7 +238,7 @@ public class AdminGUI extends JFrame {
 
     // New method for monthly income report
     private void showMonthlyIncomeReport() {
-        double totalIncome = 0.0;
+        long totalIncome = 0; // in sen, so a month of receipts adds up exactly
         // Get current month and year for comparison
         Calendar currentCal = Calendar.getInstance();
         int currentMonth = currentCal.get(Calendar.MONTH);
@@ -247,17 +247,17 @@ public class AdminGUI extends JFrame {
         // Format for displaying the current month
         String monthYearDisplay = new SimpleDateFormat("MMMM yyyy").format(currentCal.getTime());
 
+        // Example date format: Sun Jul 20 17:02:55 GMT+08:00 2025
+        SimpleDateFormat receiptDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
+        Calendar receiptCal = Calendar.getInstance();
+
         try (BufferedReader reader = new BufferedReader(new FileReader("data/all_receipts.txt"))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("Date:")) {
                     try {
                         // Parse the date from the receipt line
-                        // Example date format: Sun Jul 20 17:02:55 GMT+08:00 2025
-                        SimpleDateFormat receiptDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
                         Date receiptDate = receiptDateFormat.parse(line.substring(6).trim());
-
-                        Calendar receiptCal = Calendar.getInstance();
                         receiptCal.setTime(receiptDate);
 
                         // Check if the receipt date is in the current month and year
@@ -272,7 +272,7 @@ public class AdminGUI extends JFrame {
                                 String amountStr = amountLine.replace("Amount Paid:", "").replace("RM", "").trim();
                                 // Remove any commas if present (e.g., "1,200.00")
                                 amountStr = amountStr.replace(",", "");
-                                totalIncome += Double.parseDouble(amountStr);
+                                totalIncome += UnifiedTuitionSystem.Money.parse(amountStr);
                             }
                         }
                     } catch (java.text.ParseException e) {
@@ -295,7 +295,7 @@ public class AdminGUI extends JFrame {
         // Display the monthly income report
         StringBuilder report = new StringBuilder();
         report.append("=== MONTHLY INCOME REPORT FOR ").append(monthYearDisplay.toUpperCase()).append(" ===\n\n");
-        report.append("Total Income: RM ").append(String.format("%.2f", totalIncome)).append("\n");
+        report.append("Total Income: RM ").append(UnifiedTuitionSystem.Money.format(totalIncome)).append("\n");
 
         reportArea.setText(report.toString());
     }
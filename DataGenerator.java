@@ -0,0 +1,248 @@
+import java.io.*;
+import java.util.*;
+
+// Writes a synthetic data set for UnifiedTuitionSystem at any size, for benchmarks and load
+// tests. Produces students.txt, classes.txt, enrollments.txt and all_receipts.txt, plus the
+// staff files the classes and receipts refer to.
+//
+//   java DataGenerator --students 100000 --receipts 300000 --skew 1.1 --out big-data
+//
+// Options (defaults in brackets):
+//   --students N      number of students [1000]
+//   --tutors N        number of tutors [students / 200, at least 5]
+//   --classes N       number of classes [tutors * 3]
+//   --enrollments N   pending subject-change requests [students / 20]
+//   --receipts N      payments spread over the last --months months [students * 3]
+//   --months N        how far back payments go [6]
+//   --skew S          Zipf exponent for subject popularity and for who pays most often,
+//                     0 is uniform [1.0]
+//   --seed N          random seed, the same seed always gives the same files [42]
+//   --out DIR         folder to write into [generated-data]
+public class DataGenerator {
+    // Same catalogue as TuitionManagementSystem.initializeSubjectData
+    static final String[] LEVELS = {"Form 1", "Form 2", "Form 3", "Form 4", "Form 5"};
+    static final Map<String, List<String>> COURSE_SUBJECTS = new LinkedHashMap<>();
+    static final Map<String, Long> SUBJECT_PRICES = new LinkedHashMap<>(); // monthly fee in sen
+    static {
+        COURSE_SUBJECTS.put("Form 1", Arrays.asList("Mathematics", "English", "Science", "History", "Geography", "Bahasa Melayu"));
+        COURSE_SUBJECTS.put("Form 2", Arrays.asList("Mathematics", "English", "Science", "History", "Geography", "Bahasa Melayu", "Arts"));
+        COURSE_SUBJECTS.put("Form 3", Arrays.asList("Mathematics", "English", "Science", "History", "Geography", "Bahasa Melayu", "Living Skills"));
+        COURSE_SUBJECTS.put("Form 4", Arrays.asList("Additional Mathematics", "Physics", "Chemistry", "Biology", "Bahasa Melayu", "English"));
+        COURSE_SUBJECTS.put("Form 5", Arrays.asList("Additional Mathematics", "Physics", "Chemistry", "Biology", "Bahasa Melayu", "English"));
+
+        SUBJECT_PRICES.put("Mathematics", 9000L);
+        SUBJECT_PRICES.put("English", 10000L);
+        SUBJECT_PRICES.put("Science", 8000L);
+        SUBJECT_PRICES.put("History", 7000L);
+        SUBJECT_PRICES.put("Geography", 7000L);
+        SUBJECT_PRICES.put("Bahasa Melayu", 10000L);
+        SUBJECT_PRICES.put("Arts", 10000L);
+        SUBJECT_PRICES.put("Living Skills", 10000L);
+        SUBJECT_PRICES.put("Additional Mathematics", 12000L);
+        SUBJECT_PRICES.put("Physics", 12000L);
+        SUBJECT_PRICES.put("Chemistry", 12000L);
+        SUBJECT_PRICES.put("Biology", 12000L);
+    }
+
+    static final String[] FIRST_NAMES = {"Ahmad", "Nur", "Wei Ling", "Arjun", "Siti", "Jia Hui", "Muhammad",
+            "Priya", "Daniel", "Aisyah", "Kumar", "Mei Ying", "Hafiz", "Kavitha", "Jun Wei", "Farah"};
+    static final String[] LAST_NAMES = {"Abdullah", "Tan", "Lim", "Raj", "Ismail", "Wong", "Lee", "Krishnan",
+            "Ong", "Hassan", "Chong", "Nair", "Yusof", "Teo", "Ramasamy", "Chan"};
+    static final String[] CITIES = {"Kuala Lumpur", "Petaling Jaya", "Shah Alam", "Subang Jaya", "Cheras",
+            "Puchong", "Klang", "Seremban"};
+    static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+    static final String[] RECEPTIONISTS = {"reception", "frontdesk"};
+    static final String STAFF_PASSWORD = "pass";
+
+    static class Settings {
+        int students = 1000;
+        int tutors = -1;
+        int classes = -1;
+        int enrollments = -1;
+        int receipts = -1;
+        int months = 6;
+        double skew = 1.0;
+        long seed = 42;
+        File out = new File("generated-data");
+
+        static Settings parse(String[] args) {
+            Settings s = new Settings();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--students": s.students = Integer.parseInt(value); break;
+                    case "--tutors": s.tutors = Integer.parseInt(value); break;
+                    case "--classes": s.classes = Integer.parseInt(value); break;
+                    case "--enrollments": s.enrollments = Integer.parseInt(value); break;
+                    case "--receipts": s.receipts = Integer.parseInt(value); break;
+                    case "--months": s.months = Integer.parseInt(value); break;
+                    case "--skew": s.skew = Double.parseDouble(value); break;
+                    case "--seed": s.seed = Long.parseLong(value); break;
+                    case "--out": s.out = new File(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (s.tutors < 0) s.tutors = Math.max(5, s.students / 200);
+            if (s.classes < 0) s.classes = s.tutors * 3;
+            if (s.enrollments < 0) s.enrollments = s.students / 20;
+            if (s.receipts < 0) s.receipts = s.students * 3;
+            if (s.students < 0 || s.tutors < 0 || s.classes < 0 || s.enrollments < 0 || s.receipts < 0 || s.months < 1) {
+                throw new IllegalArgumentException("Counts cannot be negative and --months must be at least 1");
+            }
+            // Every receipt is paid by a generated student and every class taught by a generated tutor
+            if (s.students == 0 && s.receipts > 0) {
+                throw new IllegalArgumentException("--receipts needs at least one student; pass --receipts 0 with --students 0");
+            }
+            if (s.tutors == 0 && s.classes > 0) {
+                throw new IllegalArgumentException("--classes needs at least one tutor; pass --classes 0 with --tutors 0");
+            }
+            return s;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Settings settings = Settings.parse(args);
+        long start = System.nanoTime();
+        generate(settings);
+        System.out.printf("Wrote %d students, %d classes, %d enrollments and %d receipts to %s in %.0f ms%n",
+                settings.students, settings.classes, settings.enrollments, settings.receipts,
+                settings.out.getPath(), (System.nanoTime() - start) / 1e6);
+    }
+
+    static String studentId(int n) { return String.format("S%06d", n); }
+    static String tutorUsername(int n) { return "tutor" + n; }
+
+    static void generate(Settings settings) throws IOException {
+        settings.out.mkdirs();
+        Random random = new Random(settings.seed);
+        Map<String, Zipf> subjectPicker = new HashMap<>();
+        for (String level : LEVELS) {
+            subjectPicker.put(level, new Zipf(COURSE_SUBJECTS.get(level).size(), settings.skew));
+        }
+
+        try (PrintWriter out = writer(settings, "admin.txt")) {
+            out.println("admin,admin123,Administrator,admin@atc.com");
+        }
+        try (PrintWriter out = writer(settings, "receptionist.txt")) {
+            for (String r : RECEPTIONISTS) out.println(r + "," + STAFF_PASSWORD + ",Receptionist " + r + "," + r + "@atc.com");
+        }
+        try (PrintWriter out = writer(settings, "tutors.txt")) {
+            for (int t = 0; t < settings.tutors; t++) {
+                out.println(tutorUsername(t) + "," + STAFF_PASSWORD + "," + name(random) + "," + phone(random));
+            }
+        }
+
+        // Classes follow the same popularity curve as enrolments, so busy subjects get more classes
+        List<String> allSubjects = new ArrayList<>(SUBJECT_PRICES.keySet());
+        Zipf classPicker = new Zipf(allSubjects.size(), settings.skew);
+        try (PrintWriter out = writer(settings, "classes.txt")) {
+            for (int c = 0; c < settings.classes; c++) {
+                String subject = allSubjects.get(classPicker.next(random));
+                String schedule = DAYS[random.nextInt(DAYS.length)] + " " + (9 + random.nextInt(10)) + ":00";
+                out.println("C" + (c + 1) + "," + subject + "," + UnifiedTuitionSystem.Money.format(SUBJECT_PRICES.get(subject)) + "," + schedule
+                        + "," + tutorUsername(c % settings.tutors));
+            }
+        }
+
+        // Each student owes one month per enrolled subject for every month covered by receipts
+        String[] levels = new String[settings.students];
+        String[][] subjects = new String[settings.students][];
+        long[] balance = new long[settings.students];
+        for (int n = 0; n < settings.students; n++) {
+            levels[n] = LEVELS[random.nextInt(LEVELS.length)];
+            List<String> offered = COURSE_SUBJECTS.get(levels[n]);
+            Set<String> chosen = new LinkedHashSet<>();
+            int count = 1 + random.nextInt(3);
+            while (chosen.size() < count) chosen.add(offered.get(subjectPicker.get(levels[n]).next(random)));
+            subjects[n] = chosen.toArray(new String[0]);
+            for (String s : subjects[n]) balance[n] += SUBJECT_PRICES.get(s) * settings.months;
+        }
+
+        // Payments in date order, so each receipt's new balance follows on from the previous one
+        long now = System.currentTimeMillis();
+        long span = settings.months * 30L * 86400000L;
+        long[] times = new long[settings.receipts];
+        for (int r = 0; r < times.length; r++) times[r] = now - (long) (random.nextDouble() * span);
+        Arrays.sort(times);
+        Zipf payer = new Zipf(Math.max(1, settings.students), settings.skew);
+        try (PrintWriter out = writer(settings, "all_receipts.txt")) {
+            for (long time : times) {
+                int n = payer.next(random);
+                long amount = SUBJECT_PRICES.get(subjects[n][random.nextInt(subjects[n].length)]);
+                balance[n] = Math.max(0, balance[n] - amount);
+                out.print(new UnifiedTuitionSystem.Receipt(time, studentId(n), studentName(n, settings.seed), amount,
+                        balance[n], RECEPTIONISTS[random.nextInt(RECEPTIONISTS.length)]).toText());
+            }
+        }
+
+        String month = new java.text.SimpleDateFormat("MMMM").format(new Date(now));
+        try (PrintWriter out = writer(settings, "students.txt")) {
+            for (int n = 0; n < settings.students; n++) {
+                out.println(String.join(";", studentName(n, settings.seed), studentId(n), ic(random), phone(random),
+                        (1 + random.nextInt(200)) + " Jalan " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + ", "
+                                + CITIES[random.nextInt(CITIES.length)],
+                        levels[n], String.join(",", subjects[n]), UnifiedTuitionSystem.Money.format(balance[n]), month));
+            }
+        }
+
+        try (PrintWriter out = writer(settings, "enrollments.txt")) {
+            for (int e = 0; e < settings.enrollments && settings.students > 0; e++) {
+                int n = random.nextInt(settings.students);
+                String drop = subjects[n][random.nextInt(subjects[n].length)];
+                List<String> offered = COURSE_SUBJECTS.get(levels[n]);
+                String add = offered.get(random.nextInt(offered.size()));
+                if (Arrays.asList(subjects[n]).contains(add)) continue;
+                out.println(add + "," + studentId(n) + "," + drop);
+            }
+        }
+
+        // Stale derived files would describe the old data set
+        new File(settings.out, "receipts.ledger").delete();
+        new File(settings.out, "income_rollups.txt").delete();
+        new File(settings.out, "students.journal").delete();
+    }
+
+    // Names are derived from the student number so callers can recompute them without reading the file
+    static String studentName(int n, long seed) {
+        Random r = new Random(seed ^ (n * 0x9E3779B97F4A7C15L));
+        return FIRST_NAMES[r.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[r.nextInt(LAST_NAMES.length)] + " " + n;
+    }
+
+    private static String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String phone(Random random) {
+        return "01" + random.nextInt(10) + "-" + (1000000 + random.nextInt(9000000));
+    }
+
+    // Malaysian IC: birth date (YYMMDD), state code, then four digits
+    private static String ic(Random random) {
+        return String.format("%02d%02d%02d-%02d-%04d", 8 + random.nextInt(10), 1 + random.nextInt(12),
+                1 + random.nextInt(28), 1 + random.nextInt(14), random.nextInt(10000));
+    }
+
+    private static PrintWriter writer(Settings settings, String filename) throws IOException {
+        return new PrintWriter(new BufferedWriter(new FileWriter(new File(settings.out, filename)), 1 << 16));
+    }
+
+    // Picks 0..n-1 where rank k has weight 1 / (k + 1)^skew
+    static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1.0 / Math.pow(k + 1, skew);
+                cumulative[k] = sum;
+            }
+        }
+
+        int next(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int i = Arrays.binarySearch(cumulative, target);
+            return Math.min(i < 0 ? -i - 1 : i, cumulative.length - 1);
+        }
+    }
+}
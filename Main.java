@@ -64,16 +64,13 @@ class FileManager {
         return lines;
     }
 
+    // Saved through the unified system's atomic writer (temp file + rename, honouring
+    // -Datc.durability), so a crash never leaves a half-written data file behind
     public static void writeAllLines(String filename, List<String> lines) {
         createDataDirectory();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + filename))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
-        } catch (IOException e) {
+        if (!UnifiedTuitionSystem.FileManager.writeLinesAtomically(DATA_DIR + filename, lines)) {
             JOptionPane.showMessageDialog(null,
-                    "Error writing " + filename + ": " + e.getMessage(),
+                    "Error writing " + filename,
                     "File Error",
                     JOptionPane.ERROR_MESSAGE);
         }
@@ -1,21 +1,18 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 class TuitionManagementSystem extends JFrame {
     // Student data
     private List<Student> students = new ArrayList<>();
-    private DefaultTableModel studentTableModel;
+    private UnifiedTuitionSystem.StudentTableModel<Student> studentTableModel;
 
     // Subject configuration
     private Map<String, List<String>> courseSubjects = new HashMap<>();
-    private Map<String, Double> subjectPrices = new HashMap<>();
+    private Map<String, Long> subjectPrices = new HashMap<>(); // monthly fee in sen
 
     // Current user
     private String receptionistName = "Admin";
@@ -32,14 +29,19 @@ class TuitionManagementSystem extends JFrame {
 
     private static final String RECEIPTS_FILE = "all_receipts.txt";
 
-    // NEW: Counter for generating the next student ID
-    private int nextStudentIdCounter = 0; // Initialize to 0
+    // Next TC number, shared by every desk that runs against this folder
+    private static final String ID_SEQUENCE_FILE = "student_id_tc.seq";
+    private static final String ID_PREFIX = "TC";
+
+    // Source of new student IDs; numbers are never handed out twice
+    private final UnifiedTuitionSystem.StudentIdSequence idSequence =
+            UnifiedTuitionSystem.StudentIdSequence.open(ID_SEQUENCE_FILE, () ->
+                    UnifiedTuitionSystem.StudentIdSequence.highestNumber(studentIds(), ID_PREFIX) + 1);
 
     public TuitionManagementSystem() {
         initializeSubjectData();
         setupUI();
         loadStudents();
-        determineNextStudentIdCounter();
         initializeReceiptFile();
     }
 
@@ -52,18 +54,18 @@ class TuitionManagementSystem extends JFrame {
         courseSubjects.put("Form 5", Arrays.asList("Additional Mathematics", "Physics", "Chemistry", "Biology", "Bahasa Melayu", "English"));
 
         // Initialize subject prices
-        subjectPrices.put("Mathematics", 90.0);
-        subjectPrices.put("English", 100.0);
-        subjectPrices.put("Science", 80.0);
-        subjectPrices.put("History", 70.0);
-        subjectPrices.put("Geography", 70.0);
-        subjectPrices.put("Bahasa Melayu", 100.0);
-        subjectPrices.put("Arts", 100.0);
-        subjectPrices.put("Living Skills", 100.0);
-        subjectPrices.put("Additional Mathematics", 120.0);
-        subjectPrices.put("Physics", 120.0);
-        subjectPrices.put("Chemistry", 120.0);
-        subjectPrices.put("Biology", 120.0);
+        subjectPrices.put("Mathematics", 9000L);
+        subjectPrices.put("English", 10000L);
+        subjectPrices.put("Science", 8000L);
+        subjectPrices.put("History", 7000L);
+        subjectPrices.put("Geography", 7000L);
+        subjectPrices.put("Bahasa Melayu", 10000L);
+        subjectPrices.put("Arts", 10000L);
+        subjectPrices.put("Living Skills", 10000L);
+        subjectPrices.put("Additional Mathematics", 12000L);
+        subjectPrices.put("Physics", 12000L);
+        subjectPrices.put("Chemistry", 12000L);
+        subjectPrices.put("Biology", 12000L);
     }
 
     private void setupUI() {
@@ -154,12 +156,12 @@ class TuitionManagementSystem extends JFrame {
         return panel;
     }
 
-    private void saveReceipt(String studentId, String name, double amountPaid, double newBalance) {
+    private void saveReceipt(String studentId, String name, long amountPaid, long newBalance) {
         String receipt = "----------------------------------\n" +
                 "Date: " + new Date() + "\n" +
                 "Student: " + name + " (" + studentId + ")\n" +
-                "Amount Paid: RM " + String.format("%.2f", amountPaid) + "\n" +
-                "New Balance: RM " + String.format("%.2f", newBalance) + "\n" +
+                "Amount Paid: RM " + UnifiedTuitionSystem.Money.format(amountPaid) + "\n" +
+                "New Balance: RM " + UnifiedTuitionSystem.Money.format(newBalance) + "\n" +
                 "Processed By: " + receptionistName + "\n" +
                 "----------------------------------\n";
 
@@ -259,12 +261,12 @@ class TuitionManagementSystem extends JFrame {
             }
 
             // Generate student ID using the new counter logic
-            String studentId = String.format("TC%03d", ++nextStudentIdCounter); // Increment and use
+            String studentId = String.format(ID_PREFIX + "%03d", idSequence.nextNumber());
 
             // Calculate total fees
-            double totalFees = 0.0;
+            long totalFees = 0;
             for (String subj : subjects) {
-                Double price = subjectPrices.get(subj);
+                Long price = subjectPrices.get(subj);
                 if (price != null) {
                     totalFees += price;
                 } else {
@@ -278,11 +280,7 @@ class TuitionManagementSystem extends JFrame {
             );
 
             students.add(newStudent);
-            studentTableModel.addRow(new Object[]{
-                    studentId, name, course,
-                    String.join(", ", subjects),
-                    String.format("RM %.2f", totalFees)
-            });
+            studentTableModel.studentAdded();
 
             saveStudents(); // Save students after registration
 
@@ -380,8 +378,7 @@ class TuitionManagementSystem extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.add(createBackButtonPanel(), BorderLayout.NORTH);
 
-        studentTableModel = new DefaultTableModel(
-                new String[]{"ID", "Name", "Course", "Subjects", "Balance"}, 0);
+        studentTableModel = new UnifiedTuitionSystem.StudentTableModel<>(students);
 
         JTable studentTable = new JTable(studentTableModel);
         studentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -436,37 +433,29 @@ class TuitionManagementSystem extends JFrame {
             }
 
             // Find and update student
-            for (Student student : students) {
-                if (student.getId().equals(studentId)) {
-                    student.setCourseLevel(course);
-                    student.setSubjects(subjects.toArray(new String[0]));
-
-                    // Calculate new balance
-                    double newBalance = 0.0;
-                    for (String subj : subjects) {
-                        Double price = subjectPrices.get(subj);
-                        if (price != null) {
-                            newBalance += price;
-                        } else {
-                            System.err.println("Warning: Price not found for subject: " + subj);
-                        }
+            Student student = studentTableModel.getStudentById(studentId);
+            if (student != null) {
+                student.setCourseLevel(course);
+                student.setSubjects(subjects.toArray(new String[0]));
+
+                // Calculate new balance
+                long newBalance = 0;
+                for (String subj : subjects) {
+                    Long price = subjectPrices.get(subj);
+                    if (price != null) {
+                        newBalance += price;
+                    } else {
+                        System.err.println("Warning: Price not found for subject: " + subj);
                     }
-                    student.setBalance(newBalance);
+                }
+                student.setBalance(newBalance);
 
-                    // Update table
-                    for (int i = 0; i < studentTableModel.getRowCount(); i++) {
-                        if (studentTableModel.getValueAt(i, 0).equals(studentId)) {
-                            studentTableModel.setValueAt(course, i, 2);
-                            studentTableModel.setValueAt(String.join(", ", subjects), i, 3);
-                            studentTableModel.setValueAt(String.format("RM %.2f", newBalance), i, 4);
-                            break;
-                        }
-                    }
+                // Update table
+                studentTableModel.studentChanged(studentId);
 
-                    saveStudents(); // Save students after update
-                    JOptionPane.showMessageDialog(this, "Enrollment updated successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    return;
-                }
+                saveStudents(); // Save students after update
+                JOptionPane.showMessageDialog(this, "Enrollment updated successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                return;
             }
         });
 
@@ -478,7 +467,7 @@ class TuitionManagementSystem extends JFrame {
                 courseCombo.setSelectedItem(studentTable.getValueAt(row, 2).toString());
 
                 // Set subjects based on the selected student
-                String[] currentSubjects = students.get(row).getSubjects(); // Assuming row index matches students list index
+                String[] currentSubjects = studentTableModel.getStudentAt(row).getSubjects();
                 List<String> availableSubjectsForCourse = courseSubjects.get(courseCombo.getSelectedItem());
 
                 // Reset all subject combo boxes
@@ -567,49 +556,43 @@ class TuitionManagementSystem extends JFrame {
             }
 
             try {
-                double paymentAmount = Double.parseDouble(amountField.getText());
+                long paymentAmount = UnifiedTuitionSystem.Money.parse(amountField.getText());
                 if (paymentAmount <= 0) {
                     throw new NumberFormatException();
                 }
 
-                for (Student student : students) {
-                    if (student.getId().equals(studentId)) {
-                        double currentBalance = student.getBalance();
-                        if (paymentAmount > currentBalance) {
-                            JOptionPane.showMessageDialog(this, "Payment exceeds balance!", "Error", JOptionPane.ERROR_MESSAGE);
-                            return;
-                        }
-
-                        double newBalance = currentBalance - paymentAmount;
-                        student.setBalance(newBalance);
-
-                        // Update table
-                        for (int i = 0; i < studentTableModel.getRowCount(); i++) {
-                            if (studentTableModel.getValueAt(i, 0).equals(studentId)) {
-                                studentTableModel.setValueAt(String.format("RM %.2f", newBalance), i, 4);
-                                break;
-                            }
-                        }
-
-                        saveReceipt(studentId, student.getName(), paymentAmount, newBalance);
-
-                        // Generate receipt
-                        String receipt = "TUITION PAYMENT RECEIPT\n\n" +
-                                "Student ID: " + studentId + "\n" +
-                                "Student Name: " + student.getName() + "\n" +
-                                "Date: " + new Date() + "\n" +
-                                "Amount Paid: RM " + String.format("%.2f", paymentAmount) + "\n" +
-                                "Balance Due: RM " + String.format("%.2f", newBalance) + "\n\n" +
-                                "Thank you for your payment!";
-
-                        receiptArea.setText(receipt);
-                        amountField.setText("");
-                        balanceValue.setText(String.format("RM %.2f", newBalance));
-                        saveStudents(); // Save students after payment
-
-                        JOptionPane.showMessageDialog(this, "Payment processed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                Student student = studentTableModel.getStudentById(studentId);
+                if (student != null) {
+                    long currentBalance = student.getBalance();
+                    if (paymentAmount > currentBalance) {
+                        JOptionPane.showMessageDialog(this, "Payment exceeds balance!", "Error", JOptionPane.ERROR_MESSAGE);
                         return;
                     }
+
+                    long newBalance = currentBalance - paymentAmount;
+                    student.setBalance(newBalance);
+
+                    // Update table
+                    studentTableModel.studentChanged(studentId);
+
+                    saveReceipt(studentId, student.getName(), paymentAmount, newBalance);
+
+                    // Generate receipt
+                    String receipt = "TUITION PAYMENT RECEIPT\n\n" +
+                            "Student ID: " + studentId + "\n" +
+                            "Student Name: " + student.getName() + "\n" +
+                            "Date: " + new Date() + "\n" +
+                            "Amount Paid: RM " + UnifiedTuitionSystem.Money.format(paymentAmount) + "\n" +
+                            "Balance Due: RM " + UnifiedTuitionSystem.Money.format(newBalance) + "\n\n" +
+                            "Thank you for your payment!";
+
+                    receiptArea.setText(receipt);
+                    amountField.setText("");
+                    balanceValue.setText("RM " + UnifiedTuitionSystem.Money.format(newBalance));
+                    saveStudents(); // Save students after payment
+
+                    JOptionPane.showMessageDialog(this, "Payment processed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    return;
                 }
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid amount", "Error", JOptionPane.ERROR_MESSAGE);
@@ -682,10 +665,9 @@ class TuitionManagementSystem extends JFrame {
                     "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
             if (confirm == JOptionPane.YES_OPTION) {
-                students.removeIf(student -> student.getId().equals(studentId));
-                studentTableModel.removeRow(row);
+                students.remove(row);
+                studentTableModel.studentRemoved(row);
                 saveStudents();
-                determineNextStudentIdCounter();  // This is the key line to add
                 JOptionPane.showMessageDialog(this,
                         "Student deleted successfully",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -794,17 +776,31 @@ class TuitionManagementSystem extends JFrame {
             try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
                 students.clear(); // Clear existing data before loading
                 String line;
+                UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
+                UnifiedTuitionSystem.FieldCursor subjectFields = new UnifiedTuitionSystem.FieldCursor();
                 while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(";", -1); // Use -1 to keep trailing empty strings
-                    if (parts.length == 8) { // Ensure all parts are present
-                        String name = parts[0];
-                        String id = parts[1];
-                        String icPassport = parts[2];
-                        String contactNumber = parts[3];
-                        String address = parts[4];
-                        String courseLevel = parts[5];
-                        String[] subjects = parts[6].isEmpty() ? new String[0] : parts[6].split(",");
-                        double balance = Double.parseDouble(parts[7]);
+                    int count = 0; // empty trailing fields count too
+                    fields.reset(line, ';');
+                    while (fields.next()) count++;
+                    if (count == 8) { // Ensure all parts are present
+                        fields.at(0);
+                        String name = fields.field();
+                        fields.next();
+                        String id = fields.field();
+                        fields.next();
+                        String icPassport = fields.field();
+                        fields.next();
+                        String contactNumber = fields.field();
+                        fields.next();
+                        String address = fields.field();
+                        fields.next();
+                        String courseLevel = fields.field();
+                        fields.next();
+                        subjectFields.reset(line, ',', fields.fieldStart(), fields.fieldEnd());
+                        String[] subjects = new String[subjectFields.fieldCount()];
+                        for (int i = 0; i < subjects.length && subjectFields.next(); i++) subjects[i] = subjectFields.field();
+                        fields.next();
+                        long balance = UnifiedTuitionSystem.Money.parse(fields.field());
 
                         students.add(new Student(name, id, icPassport, contactNumber,
                                 address, courseLevel, subjects, balance));
@@ -812,16 +808,7 @@ class TuitionManagementSystem extends JFrame {
                 }
 
                 // Initialize student table
-                studentTableModel.setRowCount(0);
-                for (Student student : students) {
-                    studentTableModel.addRow(new Object[]{
-                            student.getId(),
-                            student.getName(),
-                            student.getCourseLevel(),
-                            String.join(", ", student.getSubjects()),
-                            String.format("RM %.2f", student.getBalance())
-                    });
-                }
+                studentTableModel.studentsReloaded();
             } catch (IOException | NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Error loading student data from text file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 e.printStackTrace(); // For debugging
@@ -829,25 +816,15 @@ class TuitionManagementSystem extends JFrame {
         }
     }
 
-    // NEW: Method to determine the next available student ID counter
-    private void determineNextStudentIdCounter() {
-        int maxIdNum = 0;
-        Pattern pattern = Pattern.compile("TC(\\d+)");
-        for (Student student : students) {
-            Matcher matcher = pattern.matcher(student.getId());
-            if (matcher.find()) {
-                try {
-                    int idNum = Integer.parseInt(matcher.group(1));
-                    maxIdNum = Math.max(maxIdNum, idNum);
-                } catch (NumberFormatException e) {
-                    System.err.println("Warning: Invalid student ID format: " + student.getId());
-                }
-            }
-        }
-        nextStudentIdCounter = maxIdNum;
+    // Highest TC number on file; only used to start the ID sequence on first run
+    // --- saveStudents() to write to a text file ---
+    // IDs of the students on this desk, to seed a new ID sequence
+    private List<String> studentIds() {
+        List<String> ids = new ArrayList<>(students.size());
+        for (Student student : students) ids.add(student.getId());
+        return ids;
     }
 
-    // --- saveStudents() to write to a text file ---
     private void saveStudents() {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(STUDENT_DATA_FILE))) {
             for (Student student : students) {
@@ -860,7 +837,7 @@ class TuitionManagementSystem extends JFrame {
                         student.getAddress() + ";" +
                         student.getCourseLevel() + ";" +
                         subjectsString + ";" +
-                        student.getBalance());
+                        UnifiedTuitionSystem.Money.format(student.getBalance()));
                 writer.newLine();
             }
         } catch (IOException e) {
@@ -882,7 +859,7 @@ class TuitionManagementSystem extends JFrame {
         });
     }
 
-    static class Student {
+    static class Student implements UnifiedTuitionSystem.StudentTableModel.Row {
         private String name;
         private String id;
         private String icPassport;
@@ -890,10 +867,10 @@ class TuitionManagementSystem extends JFrame {
         private String address;
         private String courseLevel;
         private String[] subjects;
-        private double balance;
+        private long balance; // in sen
 
         public Student(String name, String id, String icPassport, String contactNumber,
-                       String address, String courseLevel, String[] subjects, double balance) {
+                       String address, String courseLevel, String[] subjects, long balance) {
             this.name = name;
             this.id = id;
             this.icPassport = icPassport;
@@ -912,10 +889,10 @@ class TuitionManagementSystem extends JFrame {
         public String getAddress() { return address; }
         public String getCourseLevel() { return courseLevel; }
         public String[] getSubjects() { return subjects; }
-        public double getBalance() { return balance; }
+        public long getBalance() { return balance; }
 
         public void setCourseLevel(String courseLevel) { this.courseLevel = courseLevel; }
         public void setSubjects(String[] subjects) { this.subjects = subjects; }
-        public void setBalance(double balance) { this.balance = balance; }
+        public void setBalance(long balance) { this.balance = balance; }
     }
 }
\ No newline at end of file
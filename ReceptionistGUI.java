@@ -1,21 +1,18 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 class ReceptionistGUI extends JFrame {
     // Student data
     private List<Student> students = new ArrayList<>();
-    private DefaultTableModel studentTableModel;
+    private UnifiedTuitionSystem.StudentTableModel<Student> studentTableModel;
 
     // Subject configuration
     private Map<String, List<String>> courseSubjects = new HashMap<>();
-    private Map<String, Double> subjectPrices = new HashMap<>();
+    private Map<String, Long> subjectPrices = new HashMap<>(); // monthly fee in sen
 
     // Current user
     private String receptionistName;
@@ -31,8 +28,14 @@ class ReceptionistGUI extends JFrame {
     private static final String STUDENT_DATA_FILE = "students.txt";
     private static final String RECEIPTS_FILE = "all_receipts.txt";
 
-    // Student ID counter
-    private int nextStudentIdCounter = 0;
+    // Next TC number, shared by every desk that runs against this folder
+    private static final String ID_SEQUENCE_FILE = "student_id_tc.seq";
+    private static final String ID_PREFIX = "TC";
+
+    // Source of new student IDs; numbers are never handed out twice
+    private final UnifiedTuitionSystem.StudentIdSequence idSequence =
+            UnifiedTuitionSystem.StudentIdSequence.open(ID_SEQUENCE_FILE, () ->
+                    UnifiedTuitionSystem.StudentIdSequence.highestNumber(studentIds(), ID_PREFIX) + 1);
 
     // Constructors
     public ReceptionistGUI() {
@@ -48,7 +51,6 @@ class ReceptionistGUI extends JFrame {
         initializeSubjectData();
         setupUI();
         loadStudents();
-        determineNextStudentIdCounter();
         initializeReceiptFile();
     }
 
@@ -59,18 +61,18 @@ class ReceptionistGUI extends JFrame {
         courseSubjects.put("Form 4", Arrays.asList("Additional Mathematics", "Physics", "Chemistry", "Biology", "Bahasa Melayu", "English"));
         courseSubjects.put("Form 5", Arrays.asList("Additional Mathematics", "Physics", "Chemistry", "Biology", "Bahasa Melayu", "English"));
 
-        subjectPrices.put("Mathematics", 90.0);
-        subjectPrices.put("English", 100.0);
-        subjectPrices.put("Science", 80.0);
-        subjectPrices.put("History", 70.0);
-        subjectPrices.put("Geography", 70.0);
-        subjectPrices.put("Bahasa Melayu", 100.0);
-        subjectPrices.put("Arts", 100.0);
-        subjectPrices.put("Living Skills", 100.0);
-        subjectPrices.put("Additional Mathematics", 120.0);
-        subjectPrices.put("Physics", 120.0);
-        subjectPrices.put("Chemistry", 120.0);
-        subjectPrices.put("Biology", 120.0);
+        subjectPrices.put("Mathematics", 9000L);
+        subjectPrices.put("English", 10000L);
+        subjectPrices.put("Science", 8000L);
+        subjectPrices.put("History", 7000L);
+        subjectPrices.put("Geography", 7000L);
+        subjectPrices.put("Bahasa Melayu", 10000L);
+        subjectPrices.put("Arts", 10000L);
+        subjectPrices.put("Living Skills", 10000L);
+        subjectPrices.put("Additional Mathematics", 12000L);
+        subjectPrices.put("Physics", 12000L);
+        subjectPrices.put("Chemistry", 12000L);
+        subjectPrices.put("Biology", 12000L);
     }
 
     private void setupUI() {
@@ -160,12 +162,12 @@ class ReceptionistGUI extends JFrame {
         return panel;
     }
 
-    private void saveReceipt(String studentId, String name, double amountPaid, double newBalance) {
+    private void saveReceipt(String studentId, String name, long amountPaid, long newBalance) {
         String receipt = "----------------------------------\n" +
                 "Date: " + new Date() + "\n" +
                 "Student: " + name + " (" + studentId + ")\n" +
-                "Amount Paid: RM " + String.format("%.2f", amountPaid) + "\n" +
-                "New Balance: RM " + String.format("%.2f", newBalance) + "\n" +
+                "Amount Paid: RM " + UnifiedTuitionSystem.Money.format(amountPaid) + "\n" +
+                "New Balance: RM " + UnifiedTuitionSystem.Money.format(newBalance) + "\n" +
                 "Processed By: " + receptionistName + "\n" +
                 "----------------------------------\n";
 
@@ -259,10 +261,10 @@ class ReceptionistGUI extends JFrame {
                 return;
             }
 
-            String studentId = String.format("TC%03d", ++nextStudentIdCounter);
-            double totalFees = 0.0;
+            String studentId = String.format(ID_PREFIX + "%03d", idSequence.nextNumber());
+            long totalFees = 0;
             for (String subj : subjects) {
-                Double price = subjectPrices.get(subj);
+                Long price = subjectPrices.get(subj);
                 if (price != null) {
                     totalFees += price;
                 } else {
@@ -276,11 +278,7 @@ class ReceptionistGUI extends JFrame {
             );
 
             students.add(newStudent);
-            studentTableModel.addRow(new Object[]{
-                    studentId, name, course,
-                    String.join(", ", subjects),
-                    String.format("RM %.2f", totalFees)
-            });
+            studentTableModel.studentAdded();
 
             saveStudents();
             JOptionPane.showMessageDialog(this,
@@ -360,8 +358,7 @@ class ReceptionistGUI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.add(createBackButtonPanel(), BorderLayout.NORTH);
 
-        studentTableModel = new DefaultTableModel(
-                new String[]{"ID", "Name", "Course", "Subjects", "Balance"}, 0);
+        studentTableModel = new UnifiedTuitionSystem.StudentTableModel<>(students);
 
         JTable studentTable = new JTable(studentTableModel);
         studentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -412,35 +409,27 @@ class ReceptionistGUI extends JFrame {
                 return;
             }
 
-            for (Student student : students) {
-                if (student.getId().equals(studentId)) {
-                    student.setCourseLevel(course);
-                    student.setSubjects(subjects.toArray(new String[0]));
-
-                    double newBalance = 0.0;
-                    for (String subj : subjects) {
-                        Double price = subjectPrices.get(subj);
-                        if (price != null) {
-                            newBalance += price;
-                        } else {
-                            System.err.println("Warning: Price not found for subject: " + subj);
-                        }
+            Student student = studentTableModel.getStudentById(studentId);
+            if (student != null) {
+                student.setCourseLevel(course);
+                student.setSubjects(subjects.toArray(new String[0]));
+
+                long newBalance = 0;
+                for (String subj : subjects) {
+                    Long price = subjectPrices.get(subj);
+                    if (price != null) {
+                        newBalance += price;
+                    } else {
+                        System.err.println("Warning: Price not found for subject: " + subj);
                     }
-                    student.setBalance(newBalance);
+                }
+                student.setBalance(newBalance);
 
-                    for (int i = 0; i < studentTableModel.getRowCount(); i++) {
-                        if (studentTableModel.getValueAt(i, 0).equals(studentId)) {
-                            studentTableModel.setValueAt(course, i, 2);
-                            studentTableModel.setValueAt(String.join(", ", subjects), i, 3);
-                            studentTableModel.setValueAt(String.format("RM %.2f", newBalance), i, 4);
-                            break;
-                        }
-                    }
+                studentTableModel.studentChanged(studentId);
 
-                    saveStudents();
-                    JOptionPane.showMessageDialog(this, "Enrollment updated successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    return;
-                }
+                saveStudents();
+                JOptionPane.showMessageDialog(this, "Enrollment updated successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                return;
             }
         });
 
@@ -450,7 +439,7 @@ class ReceptionistGUI extends JFrame {
                 currentStudentField.setText(studentTable.getValueAt(row, 0).toString());
                 courseCombo.setSelectedItem(studentTable.getValueAt(row, 2).toString());
 
-                String[] currentSubjects = students.get(row).getSubjects();
+                String[] currentSubjects = studentTableModel.getStudentAt(row).getSubjects();
                 List<String> availableSubjectsForCourse = courseSubjects.get(courseCombo.getSelectedItem());
 
                 subject1.setSelectedIndex(0);
@@ -528,47 +517,41 @@ class ReceptionistGUI extends JFrame {
             }
 
             try {
-                double paymentAmount = Double.parseDouble(amountField.getText());
+                long paymentAmount = UnifiedTuitionSystem.Money.parse(amountField.getText());
                 if (paymentAmount <= 0) {
                     throw new NumberFormatException();
                 }
 
-                for (Student student : students) {
-                    if (student.getId().equals(studentId)) {
-                        double currentBalance = student.getBalance();
-                        if (paymentAmount > currentBalance) {
-                            JOptionPane.showMessageDialog(this, "Payment exceeds balance!", "Error", JOptionPane.ERROR_MESSAGE);
-                            return;
-                        }
-
-                        double newBalance = currentBalance - paymentAmount;
-                        student.setBalance(newBalance);
-
-                        for (int i = 0; i < studentTableModel.getRowCount(); i++) {
-                            if (studentTableModel.getValueAt(i, 0).equals(studentId)) {
-                                studentTableModel.setValueAt(String.format("RM %.2f", newBalance), i, 4);
-                                break;
-                            }
-                        }
-
-                        saveReceipt(studentId, student.getName(), paymentAmount, newBalance);
-
-                        String receipt = "TUITION PAYMENT RECEIPT\n\n" +
-                                "Student ID: " + studentId + "\n" +
-                                "Student Name: " + student.getName() + "\n" +
-                                "Date: " + new Date() + "\n" +
-                                "Amount Paid: RM " + String.format("%.2f", paymentAmount) + "\n" +
-                                "Balance Due: RM " + String.format("%.2f", newBalance) + "\n\n" +
-                                "Thank you for your payment!";
-
-                        receiptArea.setText(receipt);
-                        amountField.setText("");
-                        balanceValue.setText(String.format("RM %.2f", newBalance));
-                        saveStudents();
-
-                        JOptionPane.showMessageDialog(this, "Payment processed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                Student student = studentTableModel.getStudentById(studentId);
+                if (student != null) {
+                    long currentBalance = student.getBalance();
+                    if (paymentAmount > currentBalance) {
+                        JOptionPane.showMessageDialog(this, "Payment exceeds balance!", "Error", JOptionPane.ERROR_MESSAGE);
                         return;
                     }
+
+                    long newBalance = currentBalance - paymentAmount;
+                    student.setBalance(newBalance);
+
+                    studentTableModel.studentChanged(studentId);
+
+                    saveReceipt(studentId, student.getName(), paymentAmount, newBalance);
+
+                    String receipt = "TUITION PAYMENT RECEIPT\n\n" +
+                            "Student ID: " + studentId + "\n" +
+                            "Student Name: " + student.getName() + "\n" +
+                            "Date: " + new Date() + "\n" +
+                            "Amount Paid: RM " + UnifiedTuitionSystem.Money.format(paymentAmount) + "\n" +
+                            "Balance Due: RM " + UnifiedTuitionSystem.Money.format(newBalance) + "\n\n" +
+                            "Thank you for your payment!";
+
+                    receiptArea.setText(receipt);
+                    amountField.setText("");
+                    balanceValue.setText("RM " + UnifiedTuitionSystem.Money.format(newBalance));
+                    saveStudents();
+
+                    JOptionPane.showMessageDialog(this, "Payment processed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    return;
                 }
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid amount", "Error", JOptionPane.ERROR_MESSAGE);
@@ -632,10 +615,9 @@ class ReceptionistGUI extends JFrame {
                     "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
             if (confirm == JOptionPane.YES_OPTION) {
-                students.removeIf(student -> student.getId().equals(studentId));
-                studentTableModel.removeRow(row);
+                students.remove(row);
+                studentTableModel.studentRemoved(row);
                 saveStudents();
-                determineNextStudentIdCounter();
                 JOptionPane.showMessageDialog(this,
                         "Student deleted successfully",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -746,23 +728,14 @@ class ReceptionistGUI extends JFrame {
                         String address = parts[4];
                         String courseLevel = parts[5];
                         String[] subjects = parts[6].isEmpty() ? new String[0] : parts[6].split(",");
-                        double balance = Double.parseDouble(parts[7]);
+                        long balance = UnifiedTuitionSystem.Money.parse(parts[7]);
 
                         students.add(new Student(name, id, icPassport, contactNumber,
                                 address, courseLevel, subjects, balance));
                     }
                 }
 
-                studentTableModel.setRowCount(0);
-                for (Student student : students) {
-                    studentTableModel.addRow(new Object[]{
-                            student.getId(),
-                            student.getName(),
-                            student.getCourseLevel(),
-                            String.join(", ", student.getSubjects()),
-                            String.format("RM %.2f", student.getBalance())
-                    });
-                }
+                studentTableModel.studentsReloaded();
             } catch (IOException | NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Error loading student data from text file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 e.printStackTrace();
@@ -770,21 +743,11 @@ class ReceptionistGUI extends JFrame {
         }
     }
 
-    private void determineNextStudentIdCounter() {
-        int maxIdNum = 0;
-        Pattern pattern = Pattern.compile("TC(\\d+)");
-        for (Student student : students) {
-            Matcher matcher = pattern.matcher(student.getId());
-            if (matcher.find()) {
-                try {
-                    int idNum = Integer.parseInt(matcher.group(1));
-                    maxIdNum = Math.max(maxIdNum, idNum);
-                } catch (NumberFormatException e) {
-                    System.err.println("Warning: Invalid student ID format: " + student.getId());
-                }
-            }
-        }
-        nextStudentIdCounter = maxIdNum;
+    // IDs of the students on this desk, to seed a new ID sequence
+    private List<String> studentIds() {
+        List<String> ids = new ArrayList<>(students.size());
+        for (Student student : students) ids.add(student.getId());
+        return ids;
     }
 
     private void saveStudents() {
@@ -798,7 +761,7 @@ class ReceptionistGUI extends JFrame {
                         student.getAddress() + ";" +
                         student.getCourseLevel() + ";" +
                         subjectsString + ";" +
-                        student.getBalance());
+                        UnifiedTuitionSystem.Money.format(student.getBalance()));
                 writer.newLine();
             }
         } catch (IOException e) {
@@ -828,7 +791,7 @@ class ReceptionistGUI extends JFrame {
         });
     }
 
-    static class Student {
+    static class Student implements UnifiedTuitionSystem.StudentTableModel.Row {
         private String name;
         private String id;
         private String icPassport;
@@ -836,10 +799,10 @@ class ReceptionistGUI extends JFrame {
         private String address;
         private String courseLevel;
         private String[] subjects;
-        private double balance;
+        private long balance; // in sen
 
         public Student(String name, String id, String icPassport, String contactNumber,
-                       String address, String courseLevel, String[] subjects, double balance) {
+                       String address, String courseLevel, String[] subjects, long balance) {
             this.name = name;
             this.id = id;
             this.icPassport = icPassport;
@@ -857,10 +820,10 @@ class ReceptionistGUI extends JFrame {
         public String getAddress() { return address; }
         public String getCourseLevel() { return courseLevel; }
         public String[] getSubjects() { return subjects; }
-        public double getBalance() { return balance; }
+        public long getBalance() { return balance; }
 
         public void setCourseLevel(String courseLevel) { this.courseLevel = courseLevel; }
         public void setSubjects(String[] subjects) { this.subjects = subjects; }
-        public void setBalance(double balance) { this.balance = balance; }
+        public void setBalance(long balance) { this.balance = balance; }
     }
 }
\ No newline at end of file
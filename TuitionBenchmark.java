@@ -0,0 +1,322 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Workloads for the data-access paths of UnifiedTuitionSystem, timed with JMH by
+// atc.bench.DataAccessBenchmark (src/jmh/java). Build and run from the project folder:
+//   mvn -P jmh package
+//   mkdir -p bench-data/jmh && cd bench-data/jmh
+//   java -jar ../../target/benchmarks.jar -prof gc
+// The data files are relative to the working folder, so JMH is started in an empty one:
+// every forked JVM generates its data set there before warming up (about half a minute
+// for 1M records). -prof gc adds the bytes allocated per call (gc.alloc.rate.norm);
+// -p size=<n> and -p workload=<name> pick sizes and workloads.
+//
+// Run directly, this class only checks that every workload runs against each size
+// (1k, 100k and 1M records, or java TuitionBenchmark <size>...), then stresses the
+// payment path from 1 to 16 threads, with the journal on and every write synced, and
+// checks that no payment was lost. Payments for different students should scale with
+// the thread count, since their syncs are shared. Without the journal each payment
+// rewrites students.txt under the repository lock, so that mode is not expected to
+// scale and is not measured.
+// Each run gets a fresh JVM in its own folder under bench-data/.
+public class TuitionBenchmark {
+    static final int PAYMENT_STUDENTS = 10000;
+    static final int PAYMENTS_PER_ROUND = 2000;
+    static final int[] PAYMENT_THREADS = {1, 2, 4, 8, 16};
+    static final int FORMATTED_AMOUNTS = 100000;
+    // Left in a folder filled by prepare, so a later run may fill it again
+    static final String MARKER = ".tuition-benchmark";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            checkWorkloads(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--payments")) {
+            runPayments();
+            return;
+        }
+        int[] sizes = args.length == 0 ? new int[]{1000, 100000, 1000000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+
+        for (int size : sizes) {
+            // Seeding the ledger fsyncs every receipt otherwise; pass -Datc.durability=... to override
+            runChild(String.valueOf(size), "Workload check for " + size + " records",
+                    Collections.singletonList("-Datc.durability=NONE"), "--child", String.valueOf(size));
+        }
+        runChild("payments", "Payment stress test",
+                Arrays.asList("-Datc.durability=FSYNC_FILE", "-Datc.journal=true"), "--payments");
+    }
+
+    static void runChild(String folder, String label, List<String> properties, String... args) throws Exception {
+        File dir = new File("bench-data", folder);
+        dir.mkdirs();
+        new File(dir, MARKER).createNewFile();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(properties);
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-Djava.awt.headless=true");
+        command.add("-cp");
+        command.add(new File(TuitionBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        command.add("TuitionBenchmark");
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).directory(dir).inheritIO().start();
+        if (process.waitFor() != 0) {
+            System.err.println(label + " failed");
+            System.exit(1);
+        }
+    }
+
+    // Runs every workload once; the timings come from JMH
+    static void checkWorkloads(int size) {
+        System.out.println();
+        System.out.println("=== " + size + " students, store: " + UnifiedTuitionSystem.FileManager.store.name() + " ===");
+        long start = System.nanoTime();
+        Map<String, Supplier<Object>> workloads = prepare(size);
+        System.out.printf("Generated data in %.0f ms: students.txt %,d bytes, students.bin %,d bytes%n",
+                (System.nanoTime() - start) / 1e6, new File("students.txt").length(), new File("students.bin").length());
+        for (Map.Entry<String, Supplier<Object>> workload : workloads.entrySet()) {
+            System.out.printf("%-24s %s%n", workload.getKey(), workload.getValue().get());
+        }
+    }
+
+    // Fills the working folder with a generated data set of the given size and returns
+    // the workloads by name, each returning a result for the caller to consume. Public
+    // for DataAccessBenchmark, which reaches this class by reflection.
+    public static Map<String, Supplier<Object>> prepare(int size) {
+        File folder = new File("").getAbsoluteFile();
+        String[] present = folder.list();
+        if (present != null && present.length > 0 && !new File(MARKER).exists()) {
+            throw new IllegalStateException("Benchmark data is written to the working folder, so run from an empty one, not "
+                    + folder);
+        }
+        DataGenerator.Settings settings = DataGenerator.Settings.parse(new String[]{
+                "--students", String.valueOf(size), "--receipts", String.valueOf(size / 10), "--out", "."});
+        try {
+            new File(MARKER).createNewFile();
+            new File("students.journal").delete();
+            new File("students.bin").delete();
+            DataGenerator.generate(settings);
+            UnifiedTuitionSystem.StudentBinaryFile.fromText("students.txt", "students.bin");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Same probes every call, spread over the file so lookups are not all near the start
+        String[] ids = new String[16];
+        String[] names = new String[16];
+        for (int i = 0; i < ids.length; i++) {
+            int n = (int) ((long) size * (2 * i + 1) / (2 * ids.length));
+            ids[i] = DataGenerator.studentId(n);
+            names[i] = DataGenerator.studentName(n, settings.seed);
+        }
+
+        UnifiedTuitionSystem.FlatFileStore flat = new UnifiedTuitionSystem.FlatFileStore();
+        UnifiedTuitionSystem.MappedFileStore mapped = new UnifiedTuitionSystem.MappedFileStore();
+        UnifiedTuitionSystem.StudentRepository repository = UnifiedTuitionSystem.StudentRepository.getInstance();
+        UnifiedTuitionSystem.CredentialIndex credentials = UnifiedTuitionSystem.CredentialIndex.getInstance();
+        String month = UnifiedTuitionSystem.ReceiptLedger.monthKey(System.currentTimeMillis());
+        UnifiedTuitionSystem.IncomeRollups.getInstance();
+        List<String> cachedLines = mapped.readAllLines("students.txt");
+
+        Map<String, Supplier<Object>> workloads = new LinkedHashMap<>();
+        workloads.put("read-lines-flat", () -> flat.readAllLines("students.txt").size());
+        workloads.put("read-lines-mapped", () -> mapped.readAllLines("students.txt").size());
+        workloads.put("parse-split", () -> {
+            int parsed = 0;
+            for (String line : flat.readAllLines("students.txt")) {
+                if (UnifiedTuitionSystem.StudentRecord.parse(line) != null) parsed++;
+            }
+            return parsed;
+        });
+        workloads.put("parse-mapped", () -> {
+            int parsed = 0;
+            UnifiedTuitionSystem.MappedRecords records = openRecords("students.txt");
+            while (records.next()) {
+                if (UnifiedTuitionSystem.StudentRecord.parse(records) != null) parsed++;
+            }
+            return parsed;
+        });
+        workloads.put("parse-binary", () -> {
+            int[] parsed = {0};
+            try {
+                UnifiedTuitionSystem.StudentBinaryFile.read("students.bin", r -> parsed[0]++, line -> {});
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return parsed[0];
+        });
+        workloads.put("load-text", () -> loadRepository("students.txt"));
+        workloads.put("load-binary", () -> loadRepository("students.bin"));
+        workloads.put("balances-split", () -> {
+            double total = 0;
+            for (String line : flat.readAllLines("students.txt")) {
+                String[] parts = line.split(";");
+                if (parts.length >= 8) total += Double.parseDouble(parts[7]);
+            }
+            return Math.round(total);
+        });
+        workloads.put("balances-mapped", () -> {
+            long total = 0;
+            UnifiedTuitionSystem.MappedRecords records = openRecords("students.txt");
+            while (records.next()) {
+                if (records.fieldCount() >= 8) total += records.fieldAsCents(7, 0);
+            }
+            return total / 100;
+        });
+        workloads.put("format-string", () -> {
+            long length = 0;
+            for (int i = 0; i < FORMATTED_AMOUNTS; i++) length += String.format("%.2f", i * 1.25).length();
+            return length;
+        });
+        workloads.put("format-money", () -> {
+            long length = 0;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < FORMATTED_AMOUNTS; i++) {
+                sb.setLength(0);
+                length += UnifiedTuitionSystem.Money.append(sb, i * 125L).length();
+            }
+            return length;
+        });
+        workloads.put("lookup-mapped-scan", () -> {
+            int found = 0;
+            for (String id : ids) {
+                UnifiedTuitionSystem.MappedRecords records = openRecords("students.txt");
+                while (records.next()) {
+                    if (records.fieldCount() >= 8 && records.fieldEquals(1, id)) { found++; break; }
+                }
+            }
+            return found;
+        });
+        workloads.put("lookup-file-scan", () -> {
+            int found = 0;
+            for (String id : ids) {
+                for (String line : flat.readAllLines("students.txt")) {
+                    String[] parts = line.split(";");
+                    if (parts.length >= 8 && parts[1].equals(id)) { found++; break; }
+                }
+            }
+            return found;
+        });
+        workloads.put("lookup-split-cached", () -> {
+            int found = 0;
+            for (String id : ids) {
+                for (String line : cachedLines) {
+                    String[] parts = line.split(";");
+                    if (parts.length >= 8 && parts[1].equals(id)) { found++; break; }
+                }
+            }
+            return found;
+        });
+        workloads.put("lookup-cursor-cached", () -> {
+            int found = 0;
+            UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
+            for (String id : ids) {
+                for (String line : cachedLines) {
+                    if (fields.reset(line, ';').fieldCount() >= 8 && fields.matches(1, id)) { found++; break; }
+                }
+            }
+            return found;
+        });
+        workloads.put("lookup-repository", () -> {
+            int found = 0;
+            for (String id : ids) {
+                if (repository.findById(id) != null) found++;
+            }
+            return found;
+        });
+        workloads.put("role-students", () -> {
+            int found = 0;
+            for (int i = 0; i < names.length; i++) {
+                String ic = repository.findById(ids[i]).ic;
+                if ("student".equals(credentials.resolveRole(names[i], ic))) found++;
+            }
+            return found;
+        });
+        workloads.put("role-tutor", () -> credentials.resolveRole(DataGenerator.tutorUsername(0), DataGenerator.STAFF_PASSWORD));
+        workloads.put("income-report", () -> UnifiedTuitionSystem.AdminDashboard.generateIncomeReport(month).length());
+        workloads.put("enrolled-students", () ->
+                UnifiedTuitionSystem.TutorDashboard.getEnrolledStudentsList(DataGenerator.tutorUsername(0)).length());
+        return workloads;
+    }
+
+    // Closed again so each call does not leave its lock file channel open
+    private static int loadRepository(String filename) {
+        UnifiedTuitionSystem.StudentRepository repository = new UnifiedTuitionSystem.StudentRepository(filename);
+        try {
+            return repository.findAll().size();
+        } finally {
+            repository.close();
+        }
+    }
+
+    // Runs inside bench-data/payments with the journal on and durability FSYNC_FILE
+    static void runPayments() throws Exception {
+        System.out.println();
+        System.out.println("=== payments, " + PAYMENT_STUDENTS + " students, journal + " + UnifiedTuitionSystem.FileManager.durability + " ===");
+        DataGenerator.generate(DataGenerator.Settings.parse(new String[]{
+                "--students", String.valueOf(PAYMENT_STUDENTS), "--receipts", "0", "--out", "."}));
+        new File("students.journal").delete();
+        UnifiedTuitionSystem.StudentRepository repository = UnifiedTuitionSystem.StudentRepository.getInstance();
+        UnifiedTuitionSystem.IncomeRollups.getInstance();
+
+        System.out.printf("%-10s %14s %10s%n", "threads", "payments/s", "speedup");
+        double single = 0;
+        int round = 0;
+        for (int threads : PAYMENT_THREADS) {
+            long before = totalBalance(repository);
+            int perThread = PAYMENTS_PER_ROUND / threads;
+            int offset = round++ * PAYMENTS_PER_ROUND;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> done = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int first = offset + t * perThread;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        // Every payment hits a different student, and some students get a second
+                        // payment from another thread in a later round
+                        pay(DataGenerator.studentId((first + i) % PAYMENT_STUDENTS));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) f.get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+
+            int payments = perThread * threads;
+            double rate = payments / seconds;
+            if (threads == 1) single = rate;
+            long lost = before - totalBalance(repository) - payments;
+            System.out.printf("%-10d %14.0f %9.2fx%s%n", threads, rate, rate / single,
+                    lost != 0 ? "   LOST " + UnifiedTuitionSystem.Money.format(lost) : "");
+        }
+    }
+
+    // One cent per payment, so balances stay far above zero and every payment is counted
+    private static void pay(String studentId) {
+        if (UnifiedTuitionSystem.ReceptionistDashboard.acceptPayment(studentId, 1, "benchmark") == null) {
+            throw new IllegalStateException("No student " + studentId);
+        }
+    }
+
+    // In sen
+    private static long totalBalance(UnifiedTuitionSystem.StudentRepository repository) {
+        long total = 0;
+        for (UnifiedTuitionSystem.StudentRecord r : repository.findAll()) total += r.balanceCents;
+        return total;
+    }
+
+    static UnifiedTuitionSystem.MappedRecords openRecords(String filename) {
+        try {
+            return UnifiedTuitionSystem.MappedRecords.open(filename, ';');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -22,9 +22,10 @@ public class TutorGUI extends JFrame {
 
     private void initializeTutor(String username) {
         List<String> tutors = FileManager.readAllLines("tutors.txt");
+        UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
         for (String line : tutors) {
-            String[] data = line.split(";");
-            if (data.length >= 4 && data[0].equals(username)) {
+            if (fields.reset(line, ';').fieldCount() >= 4 && fields.matches(0, username)) {
+                String[] data = line.split(";");
                 tutor = new TutorDashboard(data[0], data[1], data[2], data[3]);
                 return;
             }
@@ -159,9 +160,9 @@ public class TutorGUI extends JFrame {
                 return;
             }
 
-            double charges;
+            long charges; // in sen
             try {
-                charges = Double.parseDouble(chargesStr);
+                charges = UnifiedTuitionSystem.Money.parse(chargesStr);
                 if (charges < 0) throw new NumberFormatException();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Charges must be a positive number.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -202,10 +203,11 @@ public class TutorGUI extends JFrame {
     private void showUpdateClassDialog() {
         List<String> classLines = FileManager.readAllLines("classes.txt");
         List<ClassInfo> myClasses = new ArrayList<>();
+        UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
         for (String line : classLines) {
-            String[] parts = line.split(";");
-            if (parts.length >= 5 && parts[4].equals(tutor.getUsername())) {
-                myClasses.add(new ClassInfo(parts[0], parts[1], Double.parseDouble(parts[2]), parts[3], parts[4]));
+            if (fields.reset(line, ';').fieldCount() >= 5 && fields.matches(4, tutor.getUsername())) {
+                String[] parts = line.split(";");
+                myClasses.add(new ClassInfo(parts[0], parts[1], UnifiedTuitionSystem.Money.parse(parts[2]), parts[3], parts[4]));
             }
         }
 
@@ -245,7 +247,7 @@ public class TutorGUI extends JFrame {
         gbc.fill = GridBagConstraints.HORIZONTAL;
 
         JTextField subjectField = new JTextField(selectedClass.getSubject(), 20);
-        JTextField chargesField = new JTextField(String.valueOf(selectedClass.getCharges()), 20);
+        JTextField chargesField = new JTextField(UnifiedTuitionSystem.Money.format(selectedClass.getCharges()), 20);
 
         String[] days = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
         JComboBox<String> dayBox = new JComboBox<>(days);
@@ -324,9 +326,9 @@ public class TutorGUI extends JFrame {
                 return;
             }
 
-            double charges;
+            long charges; // in sen
             try {
-                charges = Double.parseDouble(chargesStr);
+                charges = UnifiedTuitionSystem.Money.parse(chargesStr);
                 if (charges < 0) throw new NumberFormatException();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Charges must be a positive number.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -366,9 +368,9 @@ public class TutorGUI extends JFrame {
     private void showDeleteClassDialog() {
         List<String> classLines = FileManager.readAllLines("classes.txt");
         List<String> myClasses = new ArrayList<>();
+        UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
         for (String line : classLines) {
-            String[] parts = line.split(";");
-            if (parts.length >= 5 && parts[4].equals(tutor.getUsername())) {
+            if (fields.reset(line, ';').fieldCount() >= 5 && fields.matches(4, tutor.getUsername())) {
                 myClasses.add(line);
             }
         }
@@ -421,10 +423,11 @@ public class TutorGUI extends JFrame {
     private void showStudentsDialog() {
         List<String> classLines = FileManager.readAllLines("classes.txt");
         List<ClassInfo> myClasses = new ArrayList<>();
+        UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
         for (String line : classLines) {
-            String[] parts = line.split(";");
-            if (parts.length >= 5 && parts[4].equals(tutor.getUsername())) {
-                myClasses.add(new ClassInfo(parts[0], parts[1], Double.parseDouble(parts[2]), parts[3], parts[4]));
+            if (fields.reset(line, ';').fieldCount() >= 5 && fields.matches(4, tutor.getUsername())) {
+                String[] parts = line.split(";");
+                myClasses.add(new ClassInfo(parts[0], parts[1], UnifiedTuitionSystem.Money.parse(parts[2]), parts[3], parts[4]));
             }
         }
 
@@ -447,10 +450,11 @@ public class TutorGUI extends JFrame {
 
         List<String> enrollments = FileManager.readAllLines("enrollments.txt");
         Set<String> studentIds = new HashSet<>();
+        UnifiedTuitionSystem.FieldCursor enrollFields = new UnifiedTuitionSystem.FieldCursor();
         for (String enroll : enrollments) {
-            String[] parts = enroll.split(";");
-            if (parts.length >= 2 && parts[0].equals(selectedId)) {
-                studentIds.add(parts[1]);
+            if (enrollFields.reset(enroll, ';').fieldCount() >= 2 && enrollFields.matches(0, selectedId)) {
+                enrollFields.next();
+                studentIds.add(enrollFields.field());
             }
         }
 
@@ -469,10 +473,14 @@ public class TutorGUI extends JFrame {
         };
 
         List<String> students = FileManager.readAllLines("students.txt");
+        UnifiedTuitionSystem.FieldCursor studentFields = new UnifiedTuitionSystem.FieldCursor();
         for (String studentLine : students) {
-            String[] parts = studentLine.split(";");
-            if (parts.length >= 3 && studentIds.contains(parts[0])) {
-                model.addRow(new Object[]{parts[0], parts[1], parts[2]});
+            if (studentFields.reset(studentLine, ';').fieldCount() >= 3) {
+                studentFields.at(0);
+                if (studentIds.contains(studentFields.field())) {
+                    String[] parts = studentLine.split(";");
+                    model.addRow(new Object[]{parts[0], parts[1], parts[2]});
+                }
             }
         }
 
@@ -538,9 +546,9 @@ public class TutorGUI extends JFrame {
 
             List<String> tutors = FileManager.readAllLines("tutors.txt");
             List<String> updatedTutors = new ArrayList<>();
+            UnifiedTuitionSystem.FieldCursor fields = new UnifiedTuitionSystem.FieldCursor();
             for (String line : tutors) {
-                String[] parts = line.split(";");
-                if (parts.length >= 4 && parts[0].equals(tutor.getUsername())) {
+                if (fields.reset(line, ';').fieldCount() >= 4 && fields.matches(0, tutor.getUsername())) {
                     updatedTutors.add(tutor.toFileString());
                 } else {
                     updatedTutors.add(line);
@@ -594,11 +602,11 @@ class TutorDashboard {
 class ClassInfo {
     private String id;
     private String subject;
-    private double charges;
+    private long charges; // in sen
     private String schedule;
     private String tutorUsername;
 
-    public ClassInfo(String id, String subject, double charges, String schedule, String tutorUsername) {
+    public ClassInfo(String id, String subject, long charges, String schedule, String tutorUsername) {
         this.id = id;
         this.subject = subject;
         this.charges = charges;
@@ -608,17 +616,17 @@ class ClassInfo {
 
     public String getId() { return id; }
     public String getSubject() { return subject; }
-    public double getCharges() { return charges; }
+    public long getCharges() { return charges; }
     public String getSchedule() { return schedule; }
     public String getTutorUsername() { return tutorUsername; }
 
     public void setSubject(String subject) { this.subject = subject; }
-    public void setCharges(double charges) { this.charges = charges; }
+    public void setCharges(long charges) { this.charges = charges; }
     public void setSchedule(String schedule) { this.schedule = schedule; }
 
     @Override
     public String toString() {
-        return id + ";" + subject + ";" + charges + ";" + schedule + ";" + tutorUsername;
+        return id + ";" + subject + ";" + UnifiedTuitionSystem.Money.format(charges) + ";" + schedule + ";" + tutorUsername;
     }
 }
 
@@ -665,15 +673,11 @@ class FileManager {
         return lines;
     }
 
+    // Same temp-file-and-rename save as the main system, so -Datc.durability applies here too
     public static void writeAllLines(String filename, List<String> lines) {
         createDataDirectory();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + filename))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error writing " + filename + ": " + e.getMessage(),
+        if (!UnifiedTuitionSystem.FileManager.writeLinesAtomically(DATA_DIR + filename, lines)) {
+            JOptionPane.showMessageDialog(null, "Error writing " + filename,
                     "File Error", JOptionPane.ERROR_MESSAGE);
         }
     }
@@ -3,54 +3,3390 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import javax.swing.table.*;
 
 public class UnifiedTuitionSystem {
     // --- FileManager Utility ---
     static class FileManager {
+        // How hard writeAllLines and the journal try to get data onto disk, set with
+        // -Datc.durability=NONE|FSYNC_FILE|FSYNC_DIR. FSYNC_DIR also syncs the directory
+        // so the rename itself survives a power cut.
+        enum Durability { NONE, FSYNC_FILE, FSYNC_DIR }
+
+        static Durability durability = durabilityNamed(System.getProperty("atc.durability"));
+
+        // An unknown level is reported and treated as the default rather than stopping
+        // the program before it starts
+        static Durability durabilityNamed(String name) {
+            if (name == null || name.trim().isEmpty()) return Durability.FSYNC_FILE;
+            try {
+                return Durability.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown atc.durability '" + name + "', using FSYNC_FILE");
+                return Durability.FSYNC_FILE;
+            }
+        }
+
+        // Backend used for every data file, set with -Datc.store=flat|mapped
+        static final DataStore store = DataStore.fromName(System.getProperty("atc.store", "mapped"));
+
         public static List<String> readAllLines(String filename) {
+            return store.readAllLines(filename);
+        }
+        public static void writeAllLines(String filename, List<String> lines) {
+            store.writeAllLines(filename, lines);
+        }
+        interface StreamWriter { void writeTo(OutputStream out) throws IOException; }
+
+        // Writes to a temp file next to the target and renames it over the original,
+        // so a crash leaves either the old or the new file, never a truncated one.
+        // The writer must flush what it wraps around out but not close it. Returns false
+        // (leaving the old file in place) if the write failed.
+        static boolean writeAtomically(String filename, StreamWriter writer) {
+            File target = new File(filename).getAbsoluteFile();
+            File tmp = null;
+            boolean written = false;
+            try {
+                tmp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+                try (FileOutputStream out = new FileOutputStream(tmp)) {
+                    writer.writeTo(out);
+                    if (durability != Durability.NONE) out.getFD().sync();
+                }
+                try {
+                    Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (durability == Durability.FSYNC_DIR) syncDirectory(target.getParentFile());
+                written = true;
+            } catch (IOException e) {
+                System.err.println("Could not write " + filename + ": " + e.getMessage());
+                if (tmp != null) tmp.delete();
+            }
+            return written;
+        }
+
+        // writeAtomically for a list of lines; the standalone programs save through this too
+        static boolean writeLinesAtomically(String filename, List<String> lines) {
+            return writeAtomically(filename, out -> {
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out));
+                for (String line : lines) {
+                    bw.write(line + "\n");
+                }
+                bw.flush();
+            });
+        }
+        static void syncDirectory(File dir) {
+            // Not every platform can open a directory for syncing (Windows cannot)
+            try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {}
+        }
+        public static void appendLine(String filename, String line) {
+            store.appendLine(filename, line);
+        }
+        public static void ensureFile(String filename, String headerOrSample) {
+            File file = new File(filename);
+            if (!file.exists() || file.length() == 0) {
+                try {
+                    BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+                    if (headerOrSample != null && !headerOrSample.isEmpty()) {
+                        bw.write(headerOrSample + "\n");
+                    }
+                    bw.close();
+                } catch (IOException e) {}
+            }
+        }
+    }
+
+    // --- Data Store ---
+    // Storage backend behind FileManager. Every dashboard goes through the same instance,
+    // so swapping the backend changes how all data files are read and written.
+    interface DataStore {
+        String name();
+        List<String> readAllLines(String filename);
+        void writeAllLines(String filename, List<String> lines);
+        void appendLine(String filename, String line);
+
+        static DataStore fromName(String name) {
+            if ("flat".equalsIgnoreCase(name)) return new FlatFileStore();
+            return new MappedFileStore();
+        }
+    }
+
+    // Plain text files read and written in full on every call
+    static class FlatFileStore implements DataStore {
+        public String name() { return "flat"; }
+        public List<String> readAllLines(String filename) {
+            try {
+                File file = new File(filename);
+                if (!file.exists()) return new ArrayList<>();
+                BufferedReader br = new BufferedReader(new FileReader(file));
+                List<String> lines = new ArrayList<>();
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.trim().isEmpty()) lines.add(line.trim());
+                }
+                br.close();
+                return lines;
+            } catch (IOException e) {
+                return new ArrayList<>();
+            }
+        }
+        public void writeAllLines(String filename, List<String> lines) {
+            FileManager.writeLinesAtomically(filename, lines);
+        }
+        public void appendLine(String filename, String line) {
+            try {
+                BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true));
+                bw.write(line + "\n");
+                bw.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    // Keeps the parsed lines of each file in memory and only goes back to disk when the
+    // file's timestamp or size changes. Reloads read the file through a memory mapping.
+    // Writes still go through the flat store so they stay atomic.
+    static class MappedFileStore implements DataStore {
+        private final FlatFileStore disk = new FlatFileStore();
+        private final Map<String, CachedFile> cache = new HashMap<>();
+        long hits;
+        long misses;
+
+        private static class CachedFile {
+            List<String> lines;
+            List<Object> stamp;
+        }
+
+        // Identifies one version of a file: the file itself (a save renames a new file into
+        // place), its full-precision modification time and its length. Millisecond mtime and
+        // length alone miss a same-sized rewrite by another program within the same tick.
+        private static List<Object> stamp(File file) {
+            try {
+                java.nio.file.attribute.BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+                        java.nio.file.attribute.BasicFileAttributes.class);
+                return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        public String name() { return "mapped"; }
+
+        public synchronized List<String> readAllLines(String filename) {
+            File file = new File(filename);
+            if (!file.exists()) {
+                cache.remove(filename);
+                return new ArrayList<>();
+            }
+            CachedFile cached = cache.get(filename);
+            List<Object> stamp = stamp(file);
+            if (cached != null && stamp != null && stamp.equals(cached.stamp)) {
+                hits++;
+            } else {
+                misses++;
+                cached = new CachedFile();
+                cached.stamp = stamp;
+                cached.lines = map(file);
+                cache.put(filename, cached);
+            }
+            // Callers edit the returned list before writing it back, so hand out a copy
+            return new ArrayList<>(cached.lines);
+        }
+
+        public synchronized void writeAllLines(String filename, List<String> lines) {
+            disk.writeAllLines(filename, lines);
+            remember(filename, lines);
+        }
+
+        public synchronized void appendLine(String filename, String line) {
+            CachedFile cached = cache.get(filename);
+            File file = new File(filename);
+            boolean current = cached != null && file.exists() && cached.stamp != null
+                    && cached.stamp.equals(stamp(file));
+            disk.appendLine(filename, line);
+            if (!current) {
+                cache.remove(filename);
+                return;
+            }
+            // Readers only ever get copies, so the cached list can grow in place instead of
+            // being copied on every append. One append may carry several lines (receipt
+            // blocks, batched records).
+            for (String part : line.split("\n")) {
+                if (!part.trim().isEmpty()) cached.lines.add(part.trim());
+            }
+            cached.stamp = stamp(file);
+        }
+
+        private void remember(String filename, List<String> lines) {
+            File file = new File(filename);
+            CachedFile cached = new CachedFile();
+            cached.stamp = stamp(file);
+            cached.lines = new ArrayList<>();
+            for (String line : lines) {
+                if (!line.trim().isEmpty()) cached.lines.add(line.trim());
+            }
+            cache.put(filename, cached);
+        }
+
+        private static List<String> map(File file) {
+            List<String> lines = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size == 0) return lines;
+                CharSequence text = java.nio.charset.Charset.defaultCharset()
+                        .decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                int lineStart = 0;
+                for (int i = 0; i <= text.length(); i++) {
+                    if (i == text.length() || text.charAt(i) == '\n') {
+                        String line = text.subSequence(lineStart, i).toString().trim();
+                        if (!line.isEmpty()) lines.add(line);
+                        lineStart = i + 1;
+                    }
+                }
+            } catch (IOException e) {}
+            return lines;
+        }
+    }
+
+    // --- Field Cursor ---
+    // Steps through the delimited fields of a line in place. A field is a pair of offsets
+    // into the line: it is compared where it lies and only copied out when field() is
+    // called. One cursor is reset for every line of a file, so a scan that is looking for
+    // one key allocates nothing for the lines that do not match. fieldCount() follows
+    // String.split (trailing empty fields are not counted), so "parts.length >= n" checks
+    // carry over unchanged.
+    static class FieldCursor {
+        private String line;
+        private char delimiter;
+        private int from;
+        private int to;
+        private int start;
+        private int end;
+        private int next;
+
+        FieldCursor reset(String line, char delimiter) {
+            return reset(line, delimiter, 0, line.length());
+        }
+
+        // Walks only line[from, to), e.g. the subjects field of a student line
+        FieldCursor reset(String line, char delimiter, int from, int to) {
+            this.line = line;
+            this.delimiter = delimiter;
+            this.from = from;
+            this.to = to;
+            next = from;
+            start = end = from;
+            return this;
+        }
+
+        // Moves to the next field; false once the line is used up
+        boolean next() {
+            if (next > to) return false;
+            start = next;
+            end = start;
+            while (end < to && line.charAt(end) != delimiter) end++;
+            next = end + 1;
+            return true;
+        }
+
+        // Moves to the field at index, counting from the start of the line
+        boolean at(int index) {
+            next = from;
+            for (int i = 0; i <= index; i++) {
+                if (!next()) return false;
+            }
+            return true;
+        }
+
+        boolean matches(int index, String value) {
+            return at(index) && fieldEquals(value);
+        }
+
+        int fieldCount() {
+            int count = 0;
+            int lastNonEmpty = 0;
+            int fieldStart = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || line.charAt(i) == delimiter) {
+                    count++;
+                    if (i > fieldStart) lastNonEmpty = count;
+                    fieldStart = i + 1;
+                }
+            }
+            return lastNonEmpty;
+        }
+
+        boolean fieldEquals(String value) {
+            return end - start == value.length() && line.regionMatches(start, value, 0, value.length());
+        }
+
+        int fieldStart() { return start; }
+        int fieldEnd() { return end; }
+
+        String field() {
+            return line.substring(start, end);
+        }
+    }
+
+    // --- Mapped Records ---
+    // Walks a delimited text file straight out of a memory mapping. The mapping is copied
+    // a block at a time into one reusable byte array (scanning a heap array is several
+    // times faster than reading a mapped buffer byte by byte); each record's fields are
+    // kept as offsets into that block and only decoded to a String when a caller asks for
+    // that field. A scan that needs one column never decodes the others, and no String is
+    // made for the whole line. Lines are trimmed and blank ones skipped, as
+    // FileManager.readAllLines does. Fields follow String.split: trailing empty fields are
+    // dropped, and anything after the last slot stays in the last field.
+    // The file must be in an ASCII-compatible charset (UTF-8 or ISO-8859-x), which every
+    // data file written by this program is.
+    static class MappedRecords {
+        private static final int MAX_FIELDS = 16;
+        private static final int BLOCK_SIZE = 1 << 16;
+        private static final java.nio.charset.Charset CHARSET = java.nio.charset.Charset.defaultCharset();
+
+        private final java.nio.ByteBuffer mapping;
+        private final byte delimiter;
+        // Bytes of the mapping from blockOffset, copied in; [position, blockLength) is unread
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int blockLength;
+        private int position;
+        private int lineStart;
+        private int lineEnd;
+        private int fieldCount;
+        private final int[] starts = new int[MAX_FIELDS];
+        private final int[] ends = new int[MAX_FIELDS];
+        private long mappingOffset;
+
+        // The block seen as characters, for parsers that take a CharSequence; bytes
+        // outside ASCII come out as chars no parser accepts
+        private final CharSequence bytes = new CharSequence() {
+            public int length() { return blockLength; }
+            public char charAt(int index) { return (char) (block[index] & 0xff); }
+            public CharSequence subSequence(int start, int end) { return new String(block, start, end - start, CHARSET); }
+            public String toString() { return new String(block, 0, blockLength, CHARSET); }
+        };
+
+        private MappedRecords(java.nio.ByteBuffer mapping, char delimiter) {
+            this.mapping = mapping;
+            this.delimiter = (byte) delimiter;
+        }
+
+        // A missing file reads as empty
+        static MappedRecords open(String filename, char delimiter) throws IOException {
+            Path path = Paths.get(filename);
+            if (!Files.exists(path)) return new MappedRecords(java.nio.ByteBuffer.allocate(0), delimiter);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new IOException(filename + " is too large to map");
+                return new MappedRecords(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), delimiter);
+            }
+        }
+
+        // Moves to the next non-blank line; false at the end of the file
+        boolean next() {
+            while (true) {
+                int end = position;
+                while (end < blockLength && block[end] != '\n' && block[end] != '\r') end++;
+                if (end == blockLength && mappingOffset < mapping.limit()) {
+                    // The line runs past the block: move it to the front and read more
+                    refill();
+                    continue;
+                }
+                if (position >= blockLength) return false;
+                int start = position;
+                position = end + 1;
+                while (start < end && (block[start] & 0xff) <= ' ') start++;
+                while (end > start && (block[end - 1] & 0xff) <= ' ') end--;
+                if (start < end) {
+                    lineStart = start;
+                    lineEnd = end;
+                    split();
+                    return true;
+                }
+            }
+        }
+
+        private void refill() {
+            int carried = blockLength - position;
+            if (carried == block.length) block = Arrays.copyOf(block, block.length * 2);
+            System.arraycopy(block, position, block, 0, carried);
+            int read = (int) Math.min(block.length - carried, mapping.limit() - mappingOffset);
+            mapping.get((int) mappingOffset, block, carried, read);
+            mappingOffset += read;
+            position = 0;
+            blockLength = carried + read;
+        }
+
+        private void split() {
+            int count = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; i < lineEnd && count < MAX_FIELDS - 1; i++) {
+                if (block[i] == delimiter) {
+                    starts[count] = fieldStart;
+                    ends[count++] = i;
+                    fieldStart = i + 1;
+                }
+            }
+            starts[count] = fieldStart;
+            ends[count++] = lineEnd;
+            while (count > 0 && starts[count - 1] == ends[count - 1]) count--;
+            fieldCount = count;
+        }
+
+        int fieldCount() {
+            return fieldCount;
+        }
+
+        String field(int i) {
+            return new String(block, starts[i], ends[i] - starts[i], CHARSET);
+        }
+
+        String line() {
+            return new String(block, lineStart, lineEnd - lineStart, CHARSET);
+        }
+
+        // Compares without decoding; value must be ASCII
+        boolean fieldEquals(int i, String value) {
+            int start = starts[i];
+            if (ends[i] - start != value.length()) return false;
+            for (int j = 0; j < value.length(); j++) {
+                if (block[start + j] != value.charAt(j)) return false;
+            }
+            return true;
+        }
+
+        // The field as sen (see Money.parse), or fallback if it is not a number. Plain
+        // decimals such as 270.00 are parsed from the bytes; anything else goes through
+        // the String.
+        long fieldAsCents(int i, long fallback) {
+            long sen = Money.parse(bytes, starts[i], ends[i]);
+            if (sen != Money.INVALID) return sen;
+            try {
+                return Money.parse(field(i));
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+
+    // --- Money ---
+    // Amounts are held as a long number of sen (cents), so balances and totals add up
+    // exactly instead of drifting like doubles do. Text files keep them with two
+    // decimals ("270.00"), which older readers still parse as a plain number.
+    static final class Money {
+        // Returned by the fast path for text it does not handle (exponents, spaces,
+        // more than 15 digits); a real amount this large cannot occur
+        static final long INVALID = Long.MIN_VALUE;
+
+        private Money() {}
+
+        // "12", "12.5", "-3.05", "1.0E7" -> sen, rounding half up past the second
+        // decimal. Throws NumberFormatException for anything that is not a number.
+        static long parse(String text) {
+            long sen = parse(text, 0, text.length());
+            if (sen != INVALID) return sen;
+            try {
+                return new java.math.BigDecimal(text.trim()).movePointRight(2)
+                        .setScale(0, java.math.RoundingMode.HALF_UP).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("amount out of range: " + text);
+            }
+        }
+
+        // Plain [-]digits[.digits] between from and to, or INVALID
+        static long parse(CharSequence text, int from, int to) {
+            int pos = from;
+            boolean negative = pos < to && text.charAt(pos) == '-';
+            if (negative) pos++;
+            long sen = 0;
+            int digits = 0;
+            int decimals = -1; // -1 until the point is seen
+            boolean roundUp = false;
+            for (; pos < to; pos++) {
+                char c = text.charAt(pos);
+                if (c == '.' && decimals < 0) {
+                    decimals = 0;
+                } else if (c < '0' || c > '9' || ++digits > 15) {
+                    return INVALID;
+                } else if (decimals < 2) {
+                    sen = sen * 10 + (c - '0');
+                    if (decimals >= 0) decimals++;
+                } else if (decimals++ == 2) {
+                    roundUp = c >= '5';
+                }
+            }
+            if (digits == 0) return INVALID;
+            for (int d = Math.max(decimals, 0); d < 2; d++) sen *= 10;
+            if (roundUp) sen++;
+            return negative ? -sen : sen;
+        }
+
+        static long ofDouble(double amount) {
+            return Math.round(amount * 100);
+        }
+
+        // Two decimals, '.' as the point, no grouping; same text as String.format("%.2f")
+        // gives in an English locale
+        static String format(long sen) {
+            return append(new StringBuilder(24), sen).toString();
+        }
+
+        static StringBuilder append(StringBuilder sb, long sen) {
+            if (sen < 0) sb.append('-');
+            long whole = Math.abs(sen / 100);
+            int fraction = (int) Math.abs(sen % 100);
+            sb.append(whole).append('.');
+            if (fraction < 10) sb.append('0');
+            return sb.append(fraction);
+        }
+
+        // The part-th of parts equal shares of amount; the leftover sen go to the first
+        // shares, so the shares always add up to the amount
+        static long share(long amount, int parts, int part) {
+            return Math.floorDiv(amount, parts) + (part < Math.floorMod(amount, parts) ? 1 : 0);
+        }
+    }
+
+    // --- Student Table Model ---
+    // Table view straight over a receptionist desk's list of students, shared by the
+    // standalone desk programs (each keeps its own Student class and implements Row).
+    // Cells are formatted only when the table paints them, and edits fire events for
+    // just the rows they touch.
+    static class StudentTableModel<S extends StudentTableModel.Row> extends AbstractTableModel {
+        interface Row {
+            String getId();
+            String getName();
+            String getCourseLevel();
+            String[] getSubjects();
+            long getBalance(); // in sen
+        }
+
+        private static final String[] COLUMNS = {"ID", "Name", "Course", "Subjects", "Balance"};
+        private final List<S> students;
+        // Student ID -> row, so an edit finds its row without scanning the table
+        private final Map<String, Integer> rowById = new HashMap<>();
+
+        StudentTableModel(List<S> students) {
+            this.students = students;
+            reindexFrom(0);
+        }
+
+        public int getRowCount() { return students.size(); }
+
+        public int getColumnCount() { return COLUMNS.length; }
+
+        public String getColumnName(int column) { return COLUMNS[column]; }
+
+        public Object getValueAt(int row, int column) {
+            S student = students.get(row);
+            switch (column) {
+                case 0: return student.getId();
+                case 1: return student.getName();
+                case 2: return student.getCourseLevel();
+                case 3: return String.join(", ", student.getSubjects());
+                default: return "RM " + Money.format(student.getBalance());
+            }
+        }
+
+        public S getStudentAt(int row) { return students.get(row); }
+
+        public S getStudentById(String studentId) {
+            int row = indexOf(studentId);
+            return row < 0 ? null : students.get(row);
+        }
+
+        public int indexOf(String studentId) {
+            Integer row = rowById.get(studentId);
+            return row == null ? -1 : row;
+        }
+
+        // Call after the list has changed. Updates only repaint their own row, so the
+        // selection and scroll position of every table on this model stay put.
+        public void studentAdded() {
+            int row = students.size() - 1;
+            rowById.putIfAbsent(students.get(row).getId(), row);
+            fireTableRowsInserted(row, row);
+        }
+
+        public void studentChanged(String studentId) {
+            int row = indexOf(studentId);
+            if (row >= 0) fireTableRowsUpdated(row, row);
+        }
+
+        public void studentRemoved(int row) {
+            reindexFrom(row);
+            fireTableRowsDeleted(row, row);
+        }
+
+        public void studentsReloaded() {
+            rowById.clear();
+            reindexFrom(0);
+            fireTableDataChanged();
+        }
+
+        // Rows after a removal shift up by one
+        private void reindexFrom(int row) {
+            rowById.values().removeIf(r -> r >= row);
+            for (int i = row; i < students.size(); i++) rowById.putIfAbsent(students.get(i).getId(), i);
+        }
+    }
+
+    // --- Subject Catalogue ---
+    // Subjects and levels as small integer codes. The fixed catalogue of
+    // TuitionManagementSystem.initializeSubjectData comes first, in the same order, and
+    // any other name found in the data gets the next free code. Each distinct subjects
+    // field is decoded once into a SubjectList shared by every student who has it, so
+    // a student holds one reference instead of its own string, and reports can total
+    // into arrays indexed by code. The repository keeps a bitset of students per code.
+    static class SubjectCatalogue {
+        static final String[] LEVELS = {"Form 1", "Form 2", "Form 3", "Form 4", "Form 5"};
+        static final String[] SUBJECTS = {"Mathematics", "English", "Science", "History", "Geography",
+                "Bahasa Melayu", "Arts", "Living Skills", "Additional Mathematics", "Physics", "Chemistry", "Biology"};
+        private static final Map<String, Integer> subjectCodes = new HashMap<>();
+        private static final Map<String, Integer> levelCodes = new HashMap<>();
+        private static final Map<String, SubjectList> lists = new HashMap<>();
+        // Code -> name, replaced whole when a name is added so readers need no lock
+        private static volatile String[] subjectNames = new String[0];
+        private static volatile String[] levelNames = new String[0];
+
+        static {
+            for (String subject : SUBJECTS) subjectCode(subject);
+            for (String level : LEVELS) levelCode(level);
+        }
+
+        // One subjects field, decoded
+        static final class SubjectList {
+            final String text;  // the field itself, shared by every student with the same one
+            final int[] codes;  // trimmed, non-blank entries in order
+            final int entries;  // entries including blank ones, as text.split(",") counts them
+
+            private SubjectList(String text) {
+                String[] parts = text.split(",");
+                int[] found = new int[parts.length];
+                int n = 0;
+                for (String part : parts) {
+                    part = part.trim();
+                    if (!part.isEmpty()) found[n++] = subjectCode(part);
+                }
+                this.text = text;
+                this.codes = Arrays.copyOf(found, n);
+                this.entries = parts.length;
+            }
+        }
+
+        static synchronized SubjectList list(String subjects) {
+            SubjectList list = lists.get(subjects);
+            if (list == null) {
+                list = new SubjectList(subjects);
+                lists.put(subjects, list);
+            }
+            return list;
+        }
+
+        // Code for the subject, adding it to the catalogue if it is new
+        static synchronized int subjectCode(String subject) {
+            Integer code = subjectCodes.get(subject);
+            if (code == null) {
+                code = subjectNames.length;
+                subjectCodes.put(subject, code);
+                subjectNames = append(subjectNames, subject);
+            }
+            return code;
+        }
+
+        // Code of a subject already in the catalogue, or -1
+        static synchronized int findSubject(String subject) {
+            return subjectCodes.getOrDefault(subject, -1);
+        }
+
+        static String subjectName(int code) {
+            return subjectNames[code];
+        }
+
+        static int subjectCount() {
+            return subjectNames.length;
+        }
+
+        static synchronized int levelCode(String level) {
+            Integer code = levelCodes.get(level);
+            if (code == null) {
+                code = levelNames.length;
+                levelCodes.put(level, code);
+                levelNames = append(levelNames, level);
+            }
+            return code;
+        }
+
+        static String levelName(int code) {
+            return levelNames[code];
+        }
+
+        static int levelCount() {
+            return levelNames.length;
+        }
+
+        private static String[] append(String[] names, String name) {
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            grown[names.length] = name;
+            return grown;
+        }
+    }
+
+    // --- Student Record ---
+    // One line of students.txt: name;id;ic;contact;address;level;subjects;balance[;month]
+    static class StudentRecord {
+        String name;
+        String id;
+        String ic;
+        String contact;
+        String address;
+        String level;
+        String subjects;
+        long balanceCents;
+        String month; // only present for students registered from the receptionist dashboard
+        // Not stored in the file: profileVersion goes up each time this program sees the
+        // name, contact or address change, judged by their fingerprint in the copy it last
+        // read or saved. Payments and subject changes leave it alone, so they never make
+        // a profile edit conflict.
+        int profileVersion;
+        int savedProfile;
+        // Catalogue forms of subjects and level, recomputed when those fields change
+        private SubjectCatalogue.SubjectList subjectList;
+        private int levelCode = -1;
+        // Position in the repository's slot table, which its subject bitsets refer to
+        int slot = -1;
+
+        static StudentRecord parse(String line) {
+            String[] parts = line.split(";");
+            if (parts.length < 8) return null;
+            StudentRecord r = new StudentRecord();
+            r.name = parts[0];
+            r.id = parts[1];
+            r.ic = parts[2];
+            r.contact = parts[3];
+            r.address = parts[4];
+            r.level = parts[5];
+            r.subjects = parts[6];
+            try { r.balanceCents = Money.parse(parts[7]); } catch (Exception e) {}
+            r.month = parts.length >= 9 ? parts[8] : null;
+            return r;
+        }
+
+        // Same as parse(records.line()), decoding each field straight from the mapping
+        static StudentRecord parse(MappedRecords records) {
+            int fields = records.fieldCount();
+            if (fields < 8) return null;
+            StudentRecord r = new StudentRecord();
+            r.name = records.field(0);
+            r.id = records.field(1);
+            r.ic = records.field(2);
+            r.contact = records.field(3);
+            r.address = records.field(4);
+            r.level = records.field(5);
+            r.subjects = records.field(6);
+            r.balanceCents = records.fieldAsCents(7, 0);
+            r.month = fields >= 9 ? records.field(8) : null;
+            return r;
+        }
+
+        SubjectCatalogue.SubjectList subjectList() {
+            SubjectCatalogue.SubjectList list = subjectList;
+            String current = subjects;
+            if (list == null || list.text != current && !list.text.equals(current)) {
+                list = SubjectCatalogue.list(current);
+                subjectList = list;
+            }
+            return list;
+        }
+
+        int levelCode() {
+            int code = levelCode;
+            String current = level;
+            if (code < 0 || !SubjectCatalogue.levelName(code).equals(current)) {
+                code = SubjectCatalogue.levelCode(current);
+                levelCode = code;
+            }
+            return code;
+        }
+
+        // Hash of the stored fields, the same whichever file format the record came from
+        int profileFingerprint() {
+            return Objects.hash(name, contact, address);
+        }
+
+        // An ID not assigned yet is written blank
+        String toLine() {
+            String line = String.join(";", name, id == null ? "" : id, ic, contact, address, level, subjects, Money.format(balanceCents));
+            return month == null ? line : line + ";" + month;
+        }
+    }
+
+    // --- Student Binary File ---
+    // Compact form of the student table, used instead of students.txt when started with
+    // -Datc.studentFormat=binary (the repository then keeps students.bin). Big-endian:
+    //   header, 32 bytes: magic "ATCS", format version, record count, then the sizes of
+    //                     the level, subject and month dictionaries, the number of other
+    //                     lines, 4 reserved bytes
+    //   level, subject and month dictionaries: one string each
+    //   per record: name, id, ic, contact, address; level id (2 bytes); number of
+    //               subject ids (1 byte) and the ids (2 bytes each); balance in cents
+    //               (8 bytes); month id + 1, or 0 when there is none (2 bytes)
+    //   other lines: lines of the text file that were not valid records, kept as-is
+    // A string is its UTF-8 length as a varint (7 bits a byte, low bits first) and the
+    // bytes. Convert with
+    //   java UnifiedTuitionSystem --students-to-binary | --students-to-text
+    static class StudentBinaryFile {
+        static final int MAGIC = 0x41544353; // "ATCS"
+        static final int VERSION = 1;
+        static final int HEADER_SIZE = 32;
+        private static final int MAX_ID = 0xfffe;
+        private static final int MAX_SUBJECTS = 0xff;
+        private static final int BLOCK_SIZE = 1 << 16;
+        private static final java.nio.charset.Charset UTF_8 = java.nio.charset.StandardCharsets.UTF_8;
+
+        // Throws if the file could not be written, leaving the old one in place
+        static void write(String filename, Collection<StudentRecord> records, List<String> otherLines) throws IOException {
+            Map<String, Integer> levels = new LinkedHashMap<>();
+            Map<String, Integer> subjects = new LinkedHashMap<>();
+            Map<String, Integer> months = new LinkedHashMap<>();
+            for (StudentRecord r : records) {
+                levels.putIfAbsent(r.level, levels.size());
+                for (String subject : r.subjects.split(",", -1)) subjects.putIfAbsent(subject, subjects.size());
+                if (r.month != null) months.putIfAbsent(r.month, months.size());
+            }
+            boolean written = FileManager.writeAtomically(filename, stream -> {
+                if (levels.size() > MAX_ID || subjects.size() > MAX_ID || months.size() > MAX_ID) {
+                    throw new IOException("too many distinct levels, subjects or months for the binary format");
+                }
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BLOCK_SIZE));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(records.size());
+                out.writeInt(levels.size());
+                out.writeInt(subjects.size());
+                out.writeInt(months.size());
+                out.writeInt(otherLines.size());
+                out.writeInt(0);
+                for (String level : levels.keySet()) writeString(out, level);
+                for (String subject : subjects.keySet()) writeString(out, subject);
+                for (String month : months.keySet()) writeString(out, month);
+                for (StudentRecord r : records) {
+                    writeString(out, r.name);
+                    writeString(out, r.id);
+                    writeString(out, r.ic);
+                    writeString(out, r.contact);
+                    writeString(out, r.address);
+                    out.writeShort(levels.get(r.level));
+                    // split with -1 keeps empty tokens, so the list joins back exactly
+                    String[] taken = r.subjects.split(",", -1);
+                    if (taken.length > MAX_SUBJECTS) throw new IOException("student " + r.id + " has too many subjects");
+                    out.writeByte(taken.length);
+                    for (String subject : taken) out.writeShort(subjects.get(subject));
+                    out.writeLong(r.balanceCents);
+                    out.writeShort(r.month == null ? 0 : months.get(r.month) + 1);
+                }
+                for (String line : otherLines) writeString(out, line);
+                out.flush();
+            });
+            if (!written) throw new IOException("could not write " + filename);
+        }
+
+        private static void writeString(DataOutputStream out, String s) throws IOException {
+            byte[] bytes = s.getBytes(UTF_8);
+            int length = bytes.length;
+            while (length >= 0x80) {
+                out.writeByte(length & 0x7f | 0x80);
+                length >>>= 7;
+            }
+            out.writeByte(length);
+            out.write(bytes);
+        }
+
+        // A missing file reads as empty. Records share their level, subject list and
+        // month strings with every other record that has the same ones.
+        static void read(String filename, Consumer<StudentRecord> records, Consumer<String> otherLines) throws IOException {
+            Path path = Paths.get(filename);
+            if (!Files.exists(path)) return;
+            Input in;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new IOException(filename + " is too large to map");
+                in = new Input(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            if (in.remaining() < HEADER_SIZE || in.int32() != MAGIC) {
+                throw new IOException(filename + " is not a binary student file");
+            }
+            int version = in.int32();
+            if (version != VERSION) throw new IOException(filename + " has unsupported format version " + version);
+            int count = in.int32();
+            String[] levels = new String[in.int32()];
+            String[] subjects = new String[in.int32()];
+            String[] months = new String[in.int32()];
+            int otherCount = in.int32();
+            in.int32();
+            for (int i = 0; i < levels.length; i++) levels[i] = in.string();
+            for (int i = 0; i < subjects.length; i++) subjects[i] = in.string();
+            for (int i = 0; i < months.length; i++) months[i] = in.string();
+            // Subject lists of up to three subjects, keyed by their packed ids
+            Map<Long, String> lists = new HashMap<>();
+            StringBuilder joined = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                StudentRecord r = new StudentRecord();
+                r.name = in.string();
+                r.id = in.string();
+                r.ic = in.string();
+                r.contact = in.string();
+                r.address = in.string();
+                r.level = levels[in.uint16()];
+                int taken = in.uint8();
+                long key = taken;
+                joined.setLength(0);
+                for (int j = 0; j < taken; j++) {
+                    int subject = in.uint16();
+                    key = key << 16 | subject;
+                    if (j > 0) joined.append(',');
+                    joined.append(subjects[subject]);
+                }
+                if (taken <= 3) {
+                    String list = lists.get(key);
+                    if (list == null) lists.put(key, list = joined.toString());
+                    r.subjects = list;
+                } else {
+                    r.subjects = joined.toString();
+                }
+                r.balanceCents = in.int64();
+                int month = in.uint16();
+                r.month = month == 0 ? null : months[month - 1];
+                records.accept(r);
+            }
+            for (int i = 0; i < otherCount; i++) otherLines.accept(in.string());
+        }
+
+        // Copies the mapping into a reusable block a piece at a time; reading the mapping
+        // byte by byte is several times slower
+        private static final class Input {
+            private final java.nio.ByteBuffer mapping;
+            private byte[] block = new byte[BLOCK_SIZE];
+            private int position;
+            private int limit;
+
+            Input(java.nio.ByteBuffer mapping) {
+                this.mapping = mapping;
+            }
+
+            int remaining() {
+                return limit - position + mapping.remaining();
+            }
+
+            private void require(int n) throws IOException {
+                if (limit - position >= n) return;
+                if (n > remaining()) throw new EOFException("binary student file ends early");
+                if (n > block.length) block = Arrays.copyOf(block, Math.max(n, block.length * 2));
+                System.arraycopy(block, position, block, 0, limit - position);
+                limit -= position;
+                position = 0;
+                int take = Math.min(block.length - limit, mapping.remaining());
+                mapping.get(block, limit, take);
+                limit += take;
+            }
+
+            int uint8() throws IOException {
+                require(1);
+                return block[position++] & 0xff;
+            }
+
+            int uint16() throws IOException {
+                require(2);
+                int value = (block[position] & 0xff) << 8 | block[position + 1] & 0xff;
+                position += 2;
+                return value;
+            }
+
+            int int32() throws IOException {
+                return uint16() << 16 | uint16();
+            }
+
+            long int64() throws IOException {
+                return (long) int32() << 32 | int32() & 0xffffffffL;
+            }
+
+            String string() throws IOException {
+                int length = 0;
+                for (int shift = 0; ; shift += 7) {
+                    int b = uint8();
+                    length |= (b & 0x7f) << shift;
+                    if (b < 0x80) break;
+                    if (shift > 21) throw new IOException("bad string length in binary student file");
+                }
+                require(length);
+                String s = new String(block, position, length, UTF_8);
+                position += length;
+                return s;
+            }
+        }
+
+        // Builds students.bin from students.txt; a repeated ID is kept as an other line,
+        // as the repository does
+        static void fromText(String textFilename, String binaryFilename) throws IOException {
+            Map<String, StudentRecord> byId = new LinkedHashMap<>();
+            List<String> otherLines = new ArrayList<>();
+            MappedRecords lines = MappedRecords.open(textFilename, ';');
+            while (lines.next()) {
+                StudentRecord r = StudentRecord.parse(lines);
+                if (r == null || byId.putIfAbsent(r.id, r) != null) otherLines.add(lines.line());
+            }
+            write(binaryFilename, byId.values(), otherLines);
+        }
+
+        static void toText(String binaryFilename, String textFilename) throws IOException {
+            List<String> lines = new ArrayList<>();
+            List<String> otherLines = new ArrayList<>();
+            read(binaryFilename, r -> lines.add(r.toLine()), otherLines::add);
+            lines.addAll(otherLines);
+            FileManager.writeAllLines(textFilename, lines);
+        }
+    }
+
+    // --- Student Journal ---
+    // Append-only log of student mutations. Each line is OP|crc32|payload where the
+    // payload is the full record after the change (or just the ID for DELETE), so
+    // replaying the log over the snapshot in students.txt rebuilds the current state.
+    // A line with a bad checksum is a torn write from a crash and ends the replay.
+    // The journal remembers how far it has been read or written, so the entries other
+    // desks append can be picked up without reading it all again.
+    static class StudentJournal {
+        static final String REGISTER = "REGISTER";
+        static final String SUBJECTS = "SUBJECTS";
+        static final String PAYMENT = "PAYMENT";
+        static final String PROFILE = "PROFILE";
+        static final String DELETE = "DELETE";
+
+        private final String filename;
+        private final GroupCommit syncs = new GroupCommit();
+        private FileChannel channel;
+        private int entryCount;
+        private boolean torn;
+        // Bytes read or written by this program; anything after was appended by another desk
+        private long position;
+
+        StudentJournal(String filename) {
+            this.filename = filename;
+        }
+
+        int getEntryCount() { return entryCount; }
+        boolean isTorn() { return torn; }
+
+        // Writes the entry without syncing it; pass the returned ticket to awaitDurable
+        long append(String op, String payload) {
+            String line = op + "|" + checksum(payload) + "|" + payload + "\n";
+            byte[] encoded = line.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                java.nio.ByteBuffer bytes = java.nio.ByteBuffer.wrap(encoded);
+                while (bytes.hasRemaining()) channel.write(bytes);
+            } catch (IOException e) {
+                System.err.println("Could not append to " + filename + ": " + e.getMessage());
+                return 0;
+            }
+            // Appends happen under the store lock after catching up, so this is the end of the file
+            position += encoded.length;
+            entryCount++;
+            return syncs.ticket();
+        }
+
+        // Returns once the entry behind the ticket is on disk. Call it without holding the
+        // repository lock, so entries written meanwhile by other threads share the sync.
+        void awaitDurable(long ticket) {
+            if (FileManager.durability == FileManager.Durability.NONE || ticket == 0) return;
+            syncs.await(ticket, () -> {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    System.err.println("Could not sync " + filename + ": " + e.getMessage());
+                }
+            });
+        }
+
+        // Returns {op, payload} for every intact entry, in the order they were written
+        List<String[]> readAll() {
+            List<String[]> entries = new ArrayList<>();
+            position = 0;
+            entryCount = 0;
+            torn = !readFrom(entries, true);
+            if (torn) System.err.println("Ignoring torn entry at end of " + filename);
+            return entries;
+        }
+
+        // Returns the entries appended since the last read or write, or null if the
+        // journal no longer follows on from them (another desk compacted it, or an entry
+        // is damaged) and has to be replayed from the start
+        List<String[]> readNew() {
+            List<String[]> entries = new ArrayList<>();
+            return readFrom(entries, false) ? entries : null;
+        }
+
+        // Adds the entries after position to entries and moves position past them.
+        // Returns false at an entry that fails its checksum, or if the file is shorter
+        // than position. A last line without its newline counts as torn at startup;
+        // otherwise it is left for the next read, as another desk may still be writing it.
+        private boolean readFrom(List<String[]> entries, boolean partialIsTorn) {
+            File file = new File(filename);
+            long length = file.length();
+            if (length <= position) return length == position;
+            byte[] tail = new byte[(int) (length - position)];
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                in.seek(position);
+                in.readFully(tail);
+            } catch (IOException e) {
+                System.err.println("Could not read " + filename + ": " + e.getMessage());
+                return false;
+            }
+            int start = 0;
+            for (int end = 0; end < tail.length; end++) {
+                if (tail[end] != '\n') continue;
+                String[] parts = new String(tail, start, end - start, java.nio.charset.StandardCharsets.UTF_8).split("\\|", 3);
+                if (parts.length < 3 || !parts[1].equals(checksum(parts[2]))) {
+                    position += start;
+                    return false;
+                }
+                entries.add(new String[]{parts[0], parts[2]});
+                entryCount++;
+                start = end + 1;
+            }
+            position += start;
+            return start == tail.length || !partialIsTorn;
+        }
+
+        void clear() {
+            try {
+                new FileOutputStream(filename).close();
+            } catch (IOException e) {
+                System.err.println("Could not truncate " + filename + ": " + e.getMessage());
+                return;
+            }
+            position = 0;
+            entryCount = 0;
+            torn = false;
+        }
+
+        private static String checksum(String payload) {
+            java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+            crc.update(payload.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            return Long.toHexString(crc.getValue());
+        }
+    }
+
+    // --- Group Commit ---
+    // Lets threads that wrote to the same file share one fsync. A writer takes a ticket once
+    // its bytes are written, then waits outside its own lock: whichever thread gets to flush
+    // covers everyone who wrote before it started, and they return without syncing again.
+    static class GroupCommit {
+        private final Object flushLock = new Object();
+        private long issued;
+        private long flushed;
+
+        synchronized long ticket() {
+            return ++issued;
+        }
+
+        private synchronized long issued() {
+            return issued;
+        }
+
+        void await(long ticket, Runnable flush) {
+            synchronized (flushLock) {
+                if (flushed >= ticket) return;
+                long upTo = issued();
+                flush.run();
+                flushed = upTo;
+            }
+        }
+    }
+
+    // --- Striped Locks ---
+    // A fixed set of locks shared out by key hash. Work on one key is serialised while work
+    // on keys that fall on different stripes runs in parallel, and no lock has to be created
+    // or cleaned up per key.
+    static class StripedLocks {
+        private final java.util.concurrent.locks.ReentrantLock[] stripes;
+
+        StripedLocks(int count) {
+            int size = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+            stripes = new java.util.concurrent.locks.ReentrantLock[size];
+            for (int i = 0; i < size; i++) stripes[i] = new java.util.concurrent.locks.ReentrantLock();
+        }
+
+        private int indexOf(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (stripes.length - 1);
+        }
+
+        java.util.concurrent.locks.Lock get(String key) {
+            return stripes[indexOf(key)];
+        }
+
+        // Takes the stripes of all the keys in stripe order, so two batches cannot deadlock
+        void lockAll(Collection<String> keys) {
+            for (int i : indexesOf(keys)) stripes[i].lock();
+        }
+
+        void unlockAll(Collection<String> keys) {
+            for (int i : indexesOf(keys)) stripes[i].unlock();
+        }
+
+        private TreeSet<Integer> indexesOf(Collection<String> keys) {
+            TreeSet<Integer> indexes = new TreeSet<>();
+            for (String key : keys) indexes.add(indexOf(key));
+            return indexes;
+        }
+    }
+
+    // --- Store Lock ---
+    // Coordinates desks that share one data folder. <file>.lock holds a generation number
+    // that every writer bumps. Writers hold an exclusive FileChannel lock on it only while
+    // they check that nobody has saved since they last loaded and write their change;
+    // reads never lock, they just compare the generation (read through a memory mapping).
+    static class StoreLock {
+        private static final int WIDTH = 20;
+
+        private final FileChannel channel;
+        private final java.nio.MappedByteBuffer view;
+
+        StoreLock(String dataFilename) {
+            try {
+                channel = FileChannel.open(Paths.get(dataFilename + ".lock"), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (channel.size() < WIDTH) {
+                    java.nio.channels.FileLock lock = channel.lock();
+                    try {
+                        if (channel.size() < WIDTH) write(0);
+                    } finally {
+                        lock.release();
+                    }
+                }
+                view = channel.map(FileChannel.MapMode.READ_ONLY, 0, WIDTH);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open lock file for " + dataFilename, e);
+            }
+        }
+
+        long generation() {
+            long value = 0;
+            for (int i = 0; i < WIDTH - 1; i++) {
+                byte b = view.get(i);
+                if (b >= '0' && b <= '9') value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        // Not forced to disk: the generation only coordinates running programs, and after
+        // a power cut every program starts again from a fresh load
+        private void write(long generation) throws IOException {
+            channel.write(java.nio.ByteBuffer.wrap(String.format("%019d%n", generation)
+                    .getBytes(java.nio.charset.StandardCharsets.US_ASCII)), 0);
+        }
+
+        // Runs the write if the generation is still the expected one and returns the new
+        // generation, or -1 without running it if another writer got there first
+        synchronized long commitIf(long expected, Runnable write) {
+            try {
+                java.nio.channels.FileLock lock = channel.lock();
+                try {
+                    if (generation() != expected) return -1;
+                    write.run();
+                    write(expected + 1);
+                    return expected + 1;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not lock student data", e);
+            }
+        }
+
+        // The mapping goes with the channel once it is collected. Closing also drops any lock
+        // this JVM holds on the file through another StoreLock, so only close one that no
+        // other thread is committing through.
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close lock file: " + e.getMessage());
+            }
+        }
+    }
+
+    // --- Student Repository ---
+    // students.txt is loaded once and kept in memory with a hash index on ID and
+    // secondary indexes on name, IC and subject, so dashboard lookups no longer re-read
+    // and re-split the whole file. When another program changes the data, a journaled
+    // repository replays just the journal entries added since it last looked; any other
+    // change (or a compaction) reloads the file.
+    // Started with -Datc.journal=true, mutations are appended to students.journal
+    // instead of rewriting students.txt, and folded back into the snapshot every
+    // atc.journal.compactEvery entries (default 500) and when the program exits.
+    // Journal mode is what lets payments run in parallel: without it every payment
+    // rewrites the whole of students.txt while holding the repository lock, so readers
+    // and other payments queue behind each rewrite. Run busy payment desks with it on.
+    // Several desks can share the folder: every change is made against the latest data
+    // and saved through a StoreLock. If another desk saved first, the change is redone
+    // on a fresh load, so no desk's update is lost.
+    // With -Datc.studentFormat=binary the table lives in students.bin instead (see
+    // StudentBinaryFile), converted from students.txt the first time.
+    static class StudentRepository {
+        // Result of an edit made from a copy the user was looking at
+        enum UpdateResult { UPDATED, NOT_FOUND, CONFLICT }
+
+        private static StudentRepository instance;
+
+        private final String filename;
+        // filename ends in .bin: a StudentBinaryFile rather than lines of text
+        private final boolean binary;
+        private final StudentJournal journal;
+        private final int compactEvery;
+        private final Map<String, StudentRecord> byId = new LinkedHashMap<>();
+        private final Map<String, List<StudentRecord>> byName = new HashMap<>();
+        private final Map<String, StudentRecord> byIc = new HashMap<>();
+        // Students by slot, in the order they were indexed; removed ones leave a null
+        // until the next load. bySubject[code] has the slots of the students taking that
+        // subject, so a roster costs a pass over one bitset instead of a set per subject.
+        private final List<StudentRecord> slots = new ArrayList<>();
+        private final List<BitSet> bySubject = new ArrayList<>();
+        // Lines that are not valid student records (or repeat an ID) are kept as-is
+        private final List<String> otherLines = new ArrayList<>();
+        private long loadedModified = -1;
+        private long loadedLength = -1;
+        private final StoreLock storeLock;
+        private long loadedGeneration;
+        // Ticket of the last journal entry written, synced once the repository lock is released
+        private long pendingSync;
+        // Held by callers around a payment and the receipt that follows it, so one student's
+        // receipts are written in the order their balance changed while payments for other
+        // students go ahead in parallel
+        final StripedLocks paymentLocks = new StripedLocks(64);
+        // Times a save lost the race to another desk and was redone
+        long conflictRetries;
+
+        static synchronized StudentRepository getInstance() {
+            if (instance == null) {
+                boolean journaled = Boolean.getBoolean("atc.journal");
+                String filename = "students.txt";
+                if ("binary".equalsIgnoreCase(System.getProperty("atc.studentFormat"))) {
+                    filename = "students.bin";
+                    if (!new File(filename).exists()) {
+                        try {
+                            StudentBinaryFile.fromText("students.txt", filename);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Could not convert students.txt", e);
+                        }
+                    }
+                }
+                instance = new StudentRepository(filename, journaled ? "students.journal" : null,
+                        Integer.getInteger("atc.journal.compactEvery", 500));
+                if (journaled) {
+                    StudentRepository repo = instance;
+                    Runtime.getRuntime().addShutdownHook(new Thread(repo::compact));
+                }
+            }
+            return instance;
+        }
+
+        StudentRepository(String filename) {
+            this(filename, null, 0);
+        }
+
+        StudentRepository(String filename, String journalFilename, int compactEvery) {
+            this.filename = filename;
+            this.binary = filename.endsWith(".bin");
+            this.journal = journalFilename == null ? null : new StudentJournal(journalFilename);
+            this.compactEvery = compactEvery;
+            this.storeLock = new StoreLock(filename);
+            load();
+        }
+
+        // For a repository opened on its own, such as by the benchmarks; the shared
+        // instance stays open for as long as the program runs
+        void close() {
+            storeLock.close();
+        }
+
+        private void load() {
+            Map<String, StudentRecord> previous = new HashMap<>(byId);
+            // Read the generation first: a save that lands while we read makes it stale,
+            // and the next write will notice and reload
+            loadedGeneration = storeLock.generation();
+            byId.clear();
+            byName.clear();
+            byIc.clear();
+            slots.clear();
+            bySubject.clear();
+            otherLines.clear();
+            try {
+                if (binary) {
+                    StudentBinaryFile.read(filename, this::loaded, otherLines::add);
+                } else {
+                    MappedRecords records = MappedRecords.open(filename, ';');
+                    while (records.next()) {
+                        StudentRecord r = StudentRecord.parse(records);
+                        if (r == null || byId.containsKey(r.id)) {
+                            otherLines.add(records.line());
+                        } else {
+                            loaded(r);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + filename, e);
+            }
+            if (journal != null) {
+                for (String[] entry : journal.readAll()) replay(entry[0], entry[1]);
+                // Compact straight away so new entries are not appended after the torn one
+                if (journal.isTorn()) {
+                    long generation = storeLock.commitIf(loadedGeneration, this::save);
+                    if (generation >= 0) loadedGeneration = generation;
+                }
+            }
+            for (StudentRecord r : byId.values()) {
+                StudentRecord old = previous.get(r.id);
+                if (old != null) r.profileVersion = old.savedProfile == r.savedProfile ? old.profileVersion : old.profileVersion + 1;
+            }
+            rememberFileState();
+        }
+
+        private void loaded(StudentRecord r) {
+            if (byId.containsKey(r.id)) {
+                otherLines.add(r.toLine());
+                return;
+            }
+            r.savedProfile = r.profileFingerprint();
+            index(r);
+        }
+
+        private void replay(String op, String payload) {
+            if (op.equals(StudentJournal.DELETE)) {
+                StudentRecord old = byId.get(payload);
+                if (old != null) unindex(old);
+                return;
+            }
+            StudentRecord r = StudentRecord.parse(payload);
+            if (r == null) return;
+            r.savedProfile = r.profileFingerprint();
+            StudentRecord old = byId.get(r.id);
+            if (old != null) {
+                r.profileVersion = old.savedProfile == r.savedProfile ? old.profileVersion : old.profileVersion + 1;
+                replace(old, r);
+            } else {
+                index(r);
+            }
+        }
+
+        private void rememberFileState() {
+            File file = new File(filename);
+            loadedModified = file.lastModified();
+            loadedLength = file.length();
+        }
+
+        private void reloadIfChanged() {
+            File file = new File(filename);
+            boolean snapshotChanged = file.lastModified() != loadedModified || file.length() != loadedLength;
+            long generation = storeLock.generation();
+            if (generation == loadedGeneration && !snapshotChanged) return;
+            if (!snapshotChanged && journal != null && catchUpJournal(generation)) return;
+            load();
+        }
+
+        // Replays what other desks journaled since we last looked. The generation is read
+        // before the entries, as in load, so one that lands meanwhile makes it stale.
+        // False if the journal does not follow on from where we were.
+        private boolean catchUpJournal(long generation) {
+            List<String[]> entries = journal.readNew();
+            if (entries == null) return false;
+            for (String[] entry : entries) replay(entry[0], entry[1]);
+            loadedGeneration = generation;
+            return true;
+        }
+
+        private void index(StudentRecord r) {
+            byId.put(r.id, r);
+            indexNameAndIc(r);
+            r.slot = slots.size();
+            slots.add(r);
+            r.level = SubjectCatalogue.levelName(r.levelCode());
+            indexSubjects(r);
+        }
+
+        private void unindex(StudentRecord r) {
+            byId.remove(r.id);
+            unindexNameAndIc(r);
+            unindexSubjects(r);
+            slots.set(r.slot, null);
+        }
+
+        // Swaps in a newer copy of a record, keeping its place in byId and its slot, so
+        // replaying many changes to one student does not leave dead slots behind
+        private void replace(StudentRecord old, StudentRecord r) {
+            unindexNameAndIc(old);
+            unindexSubjects(old);
+            byId.put(r.id, r);
+            indexNameAndIc(r);
+            r.slot = old.slot;
+            slots.set(r.slot, r);
+            r.level = SubjectCatalogue.levelName(r.levelCode());
+            indexSubjects(r);
+        }
+
+        // Also swaps the record's subjects for the catalogue's shared copy, so a million
+        // students hold a few dozen subject strings between them
+        private void indexSubjects(StudentRecord r) {
+            SubjectCatalogue.SubjectList subjects = r.subjectList();
+            r.subjects = subjects.text;
+            for (int code : subjects.codes) {
+                while (bySubject.size() <= code) bySubject.add(new BitSet());
+                bySubject.get(code).set(r.slot);
+            }
+        }
+
+        private void unindexSubjects(StudentRecord r) {
+            for (int code : r.subjectList().codes) bySubject.get(code).clear(r.slot);
+        }
+
+        private void indexNameAndIc(StudentRecord r) {
+            byName.computeIfAbsent(r.name, k -> new ArrayList<>()).add(r);
+            byIc.putIfAbsent(r.ic, r);
+        }
+
+        private void unindexNameAndIc(StudentRecord r) {
+            List<StudentRecord> named = byName.get(r.name);
+            if (named != null) {
+                named.remove(r);
+                if (named.isEmpty()) byName.remove(r.name);
+            }
+            if (byIc.get(r.ic) == r) byIc.remove(r.ic);
+        }
+
+        // Makes a change against the latest data and saves it. The change mutates memory
+        // and returns its result; save runs under the store lock, and only if the result
+        // says something changed. If another desk saved since our last load, our copy is
+        // thrown away and the change is made again on a fresh load (a full one, since
+        // memory holds our unsaved change). Profile versions are bumped by the save, so a
+        // change that lost the race does not count as one.
+        private <T> T write(Supplier<T> change, java.util.function.Predicate<T> changed, Consumer<T> save) {
+            while (true) {
+                reloadIfChanged();
+                T result = change.get();
+                if (!changed.test(result)) return result;
+                long generation = storeLock.commitIf(loadedGeneration, () -> save.accept(result));
+                if (generation >= 0) {
+                    loadedGeneration = generation;
+                    rememberFileState();
+                    return result;
+                }
+                conflictRetries++;
+                load();
+            }
+        }
+
+        // Saves a mutation that has already been applied in memory
+        private void persist(String op, StudentRecord r) {
+            if (op.equals(StudentJournal.PROFILE)) r.profileVersion++;
+            if (journal == null) {
+                save();
+                return;
+            }
+            pendingSync = journal.append(op, op.equals(StudentJournal.DELETE) ? r.id : saved(r));
+            if (journal.getEntryCount() >= compactEvery) save();
+        }
+
+        // Runs a change that may write a journal entry, then waits for the entry to reach
+        // disk after releasing the repository lock, so changes made from several threads
+        // share one fsync instead of queueing behind each other's. A change that wrote
+        // nothing returns straight away rather than waiting on someone else's sync.
+        private <T> T journaled(Supplier<T> change) {
+            T result;
+            long ticket;
+            synchronized (this) {
+                long before = pendingSync;
+                result = change.get();
+                ticket = pendingSync != before ? pendingSync : 0;
+            }
+            if (journal != null) journal.awaitDurable(ticket);
+            return result;
+        }
+
+        // The record's line, remembered as what is now on disk
+        private static String saved(StudentRecord r) {
+            r.savedProfile = r.profileFingerprint();
+            return r.toLine();
+        }
+
+        // Folds any journaled changes into students.txt
+        synchronized void compact() {
+            if (journal == null) return;
+            write(() -> journal.getEntryCount() > 0, pending -> pending, pending -> save());
+        }
+
+        private void save() {
+            if (binary) {
+                try {
+                    StudentBinaryFile.write(filename, byId.values(), otherLines);
+                } catch (IOException e) {
+                    // Memory holds a change the file does not; load again before the next use
+                    loadedLength = -1;
+                    throw new UncheckedIOException("Could not save " + filename, e);
+                }
+                for (StudentRecord r : byId.values()) r.savedProfile = r.profileFingerprint();
+            } else {
+                List<String> lines = new ArrayList<>(byId.size() + otherLines.size());
+                for (StudentRecord r : byId.values()) lines.add(saved(r));
+                lines.addAll(otherLines);
+                FileManager.writeAllLines(filename, lines);
+            }
+            if (journal != null) journal.clear();
+            rememberFileState();
+        }
+
+        synchronized StudentRecord findById(String id) {
+            reloadIfChanged();
+            return byId.get(id);
+        }
+
+        synchronized StudentRecord findByName(String name) {
+            reloadIfChanged();
+            List<StudentRecord> named = byName.get(name);
+            return named == null ? null : named.get(0);
+        }
+
+        synchronized StudentRecord findByIc(String ic) {
+            reloadIfChanged();
+            return byIc.get(ic);
+        }
+
+        // The student with this ID, if any, then every student with this name
+        synchronized List<StudentRecord> findAllByNameOrId(String key) {
+            reloadIfChanged();
+            List<StudentRecord> matches = new ArrayList<>();
+            StudentRecord r = byId.get(key);
+            if (r != null) matches.add(r);
+            List<StudentRecord> named = byName.get(key);
+            if (named != null) matches.addAll(named);
+            return matches;
+        }
+
+        synchronized List<StudentRecord> findBySubject(String subject) {
+            reloadIfChanged();
+            List<StudentRecord> taking = new ArrayList<>();
+            int code = SubjectCatalogue.findSubject(subject);
+            if (code < 0 || code >= bySubject.size()) return taking;
+            BitSet slotsTaking = bySubject.get(code);
+            for (int slot = slotsTaking.nextSetBit(0); slot >= 0; slot = slotsTaking.nextSetBit(slot + 1)) {
+                taking.add(slots.get(slot));
+            }
+            return taking;
+        }
+
+        // Largest number used in an ID of the form <prefix><digits>, or 0
+        synchronized long highestIdNumber(String prefix) {
+            reloadIfChanged();
+            return StudentIdSequence.highestNumber(byId.keySet(), prefix);
+        }
+
+        synchronized List<StudentRecord> findAll() {
+            reloadIfChanged();
+            return new ArrayList<>(byId.values());
+        }
+
+        boolean register(StudentRecord r) {
+            return journaled(() -> write(() -> {
+                if (byId.containsKey(r.id)) return false;
+                index(r);
+                return true;
+            }, added -> added, added -> {
+                if (journal != null) {
+                    persist(StudentJournal.REGISTER, r);
+                } else if (binary) {
+                    save();
+                } else {
+                    FileManager.appendLine(filename, saved(r));
+                }
+            }));
+        }
+
+        // Registers a batch whose IDs are already assigned and writes them with one append
+        // (or one snapshot when journaling or in binary format). Returns the ICs and IDs
+        // that are already taken, in which case nothing is registered.
+        synchronized List<String> registerAll(List<StudentRecord> records) {
+            return write(() -> {
+                List<String> taken = new ArrayList<>();
+                for (StudentRecord r : records) {
+                    if (byIc.containsKey(r.ic)) taken.add("IC " + r.ic);
+                    if (byId.containsKey(r.id)) taken.add("ID " + r.id);
+                }
+                if (taken.isEmpty()) {
+                    for (StudentRecord r : records) index(r);
+                }
+                return taken;
+            }, taken -> taken.isEmpty() && !records.isEmpty(), taken -> {
+                if (journal != null || binary) {
+                    save();
+                    return;
+                }
+                StringBuilder lines = new StringBuilder();
+                for (StudentRecord r : records) {
+                    if (lines.length() > 0) lines.append("\n");
+                    lines.append(saved(r));
+                }
+                FileManager.appendLine(filename, lines.toString());
+            });
+        }
+
+        // Applies a change to one student; returns the record, or null if there is none
+        private StudentRecord writeRecord(String id, String op, Consumer<StudentRecord> change) {
+            return write(() -> {
+                StudentRecord r = byId.get(id);
+                if (r != null) change.accept(r);
+                return r;
+            }, r -> r != null, r -> persist(op, r));
+        }
+
+        boolean updateSubjects(String id, String subjects) {
+            return journaled(() -> writeRecord(id, StudentJournal.SUBJECTS, r -> {
+                unindexSubjects(r);
+                r.subjects = subjects;
+                indexSubjects(r);
+            })) != null;
+        }
+
+        // Returns the updated record, or null if the student does not exist. Hold
+        // paymentLocks.get(id) until the receipt is written. Only journal mode scales
+        // across threads; otherwise each call saves the full snapshot under the lock.
+        StudentRecord applyPayment(String id, long amountCents) {
+            return journaled(() -> writeRecord(id, StudentJournal.PAYMENT, r -> r.balanceCents = Math.max(0, r.balanceCents - amountCents)));
+        }
+
+        // Applies a batch of payments all-or-nothing and saves once, so the whole batch
+        // reaches students.txt in a single atomic snapshot. Returns each student's balance
+        // straight after their payment, or null (changing nothing) if any ID is unknown.
+        synchronized long[] applyPayments(List<String> ids, long[] amountsCents) {
+            return write(() -> {
+                for (String id : ids) {
+                    if (!byId.containsKey(id)) return null;
+                }
+                long[] balances = new long[ids.size()];
+                for (int i = 0; i < ids.size(); i++) {
+                    StudentRecord r = byId.get(ids.get(i));
+                    r.balanceCents = Math.max(0, r.balanceCents - amountsCents[i]);
+                    balances[i] = r.balanceCents;
+                }
+                return balances;
+            }, balances -> balances != null && balances.length > 0, balances -> save());
+        }
+
+        // Edits a profile the user has been looking at. If the name, contact or address
+        // changed since they loaded it (profileVersion differs), nothing is saved and
+        // CONFLICT is returned so the form can be refreshed.
+        UpdateResult updateProfile(String id, int expectedVersion, String name, String contact, String address) {
+            return journaled(() -> write(() -> {
+                StudentRecord r = byId.get(id);
+                if (r == null) return UpdateResult.NOT_FOUND;
+                if (r.profileVersion != expectedVersion) return UpdateResult.CONFLICT;
+                unindexNameAndIc(r);
+                r.name = name;
+                r.contact = contact;
+                r.address = address;
+                indexNameAndIc(r);
+                return UpdateResult.UPDATED;
+            }, result -> result == UpdateResult.UPDATED, result -> persist(StudentJournal.PROFILE, byId.get(id))));
+        }
+
+        boolean delete(String id) {
+            return journaled(() -> write(() -> {
+                StudentRecord r = byId.get(id);
+                if (r != null) unindex(r);
+                return r;
+            }, r -> r != null, r -> persist(StudentJournal.DELETE, r))) != null;
+        }
+    }
+
+    // --- Class Index ---
+    // classes.txt (id,subject,price,schedule,tutor) parsed once and indexed by subject and
+    // by tutor, so schedules and rosters are a map lookup instead of a file scan per
+    // subject. Rebuilt when the tutor dashboard changes a class or the file changes on disk.
+    static class ClassIndex {
+        private static ClassIndex instance;
+
+        private final String filename;
+        private final Map<String, List<String[]>> bySubject = new HashMap<>();
+        private final Map<String, List<String[]>> byTutor = new HashMap<>();
+        private boolean stale = true;
+        private long loadedModified = -1;
+        private long loadedLength = -1;
+
+        static synchronized ClassIndex getInstance() {
+            if (instance == null) instance = new ClassIndex("classes.txt");
+            return instance;
+        }
+
+        ClassIndex(String filename) {
+            this.filename = filename;
+        }
+
+        private void refresh() {
+            File file = new File(filename);
+            if (!stale && file.lastModified() == loadedModified && file.length() == loadedLength) return;
+            bySubject.clear();
+            byTutor.clear();
+            for (String line : FileManager.readAllLines(filename)) {
+                String[] parts = line.split(",");
+                if (parts.length >= 5) {
+                    bySubject.computeIfAbsent(parts[1], k -> new ArrayList<>()).add(parts);
+                    byTutor.computeIfAbsent(parts[4], k -> new ArrayList<>()).add(parts);
+                }
+            }
+            loadedModified = file.lastModified();
+            loadedLength = file.length();
+            stale = false;
+        }
+
+        // Called after classes.txt is edited
+        synchronized void invalidate() {
+            stale = true;
+        }
+
+        synchronized List<String[]> forSubject(String subject) {
+            refresh();
+            return new ArrayList<>(bySubject.getOrDefault(subject, Collections.emptyList()));
+        }
+
+        synchronized List<String[]> forTutor(String tutorUsername) {
+            refresh();
+            return new ArrayList<>(byTutor.getOrDefault(tutorUsername, Collections.emptyList()));
+        }
+    }
+
+    // --- Student ID Sequence ---
+    // Hands out student IDs S<n> that never repeat, even with several receptionist desks
+    // sharing the data folder. The next free number lives in student_id.seq. Each process
+    // reserves a block of numbers at a time under a file lock (size set with
+    // -Datc.idBlock, default 20) and then hands them out with a single atomic increment.
+    // Numbers left in a block when the program exits are skipped, never reused.
+    // The standalone receptionist programs number their TC IDs the same way from
+    // student_id_tc.seq, through open() and nextNumber().
+    static class StudentIdSequence {
+        static final String PREFIX = "S";
+        private static StudentIdSequence instance;
+        // One sequence per file in this JVM: a second FileChannel locking the same file
+        // would throw OverlappingFileLockException instead of waiting
+        private static final Map<String, StudentIdSequence> byFile = new HashMap<>();
+
+        private static class Block {
+            final java.util.concurrent.atomic.AtomicLong next;
+            final long limit;
+
+            Block(long first, long limit) {
+                this.next = new java.util.concurrent.atomic.AtomicLong(first);
+                this.limit = limit;
+            }
+        }
+
+        private final File file;
+        private final int blockSize;
+        private final java.util.function.LongSupplier seed;
+        private volatile Block block = new Block(0, 0);
+
+        static synchronized StudentIdSequence getInstance() {
+            if (instance == null) {
+                // The first run carries on after the highest ID already in students.txt
+                instance = open("student_id.seq", () -> StudentRepository.getInstance().highestIdNumber(PREFIX) + 1);
+            }
+            return instance;
+        }
+
+        // The sequence kept in filename; seed gives the first number when the file is
+        // new and is ignored otherwise
+        static StudentIdSequence open(String filename, java.util.function.LongSupplier seed) {
+            synchronized (byFile) {
+                return byFile.computeIfAbsent(new File(filename).getAbsolutePath(), path ->
+                        new StudentIdSequence(new File(path), Integer.getInteger("atc.idBlock", 20), seed));
+            }
+        }
+
+        StudentIdSequence(File file, int blockSize, java.util.function.LongSupplier seed) {
+            this.file = file;
+            this.blockSize = Math.max(1, blockSize);
+            this.seed = seed;
+        }
+
+        String next() {
+            return PREFIX + nextNumber();
+        }
+
+        // Largest n among the IDs that are prefix followed by n, or 0; seeds a new sequence
+        static long highestNumber(Iterable<String> ids, String prefix) {
+            long highest = 0;
+            for (String id : ids) {
+                if (id.length() > prefix.length() && id.startsWith(prefix)
+                        && id.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                    try {
+                        highest = Math.max(highest, Long.parseLong(id.substring(prefix.length())));
+                    } catch (NumberFormatException e) {}
+                }
+            }
+            return highest;
+        }
+
+        long nextNumber() {
+            while (true) {
+                Block b = block;
+                long n = b.next.getAndIncrement();
+                if (n < b.limit) return n;
+                synchronized (this) {
+                    if (block == b) block = reserve();
+                }
+            }
+        }
+
+        // Takes the next block from the shared file while holding an exclusive lock on it
+        private Block reserve() {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                java.nio.channels.FileLock lock = channel.lock();
+                try {
+                    java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(32);
+                    channel.read(buffer, 0);
+                    String text = new String(buffer.array(), 0, buffer.position(), java.nio.charset.StandardCharsets.US_ASCII).trim();
+                    long first = text.isEmpty() ? seed.getAsLong() : Long.parseLong(text);
+                    long limit = first + blockSize;
+                    // Fixed width, so the new value always overwrites the old one completely
+                    channel.write(java.nio.ByteBuffer.wrap(String.format("%019d%n", limit)
+                            .getBytes(java.nio.charset.StandardCharsets.US_ASCII)), 0);
+                    channel.force(false);
+                    return new Block(first, limit);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException | NumberFormatException e) {
+                throw new IllegalStateException("Could not reserve student IDs from " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // --- Receipt ---
+    static class Receipt {
+        long time;
+        String studentId;
+        String studentName;
+        long amountCents;
+        long newBalanceCents;
+        String processedBy;
+        String reference; // bank reference of an imported payment, or null
+
+        Receipt(long time, String studentId, String studentName, long amountCents, long newBalanceCents, String processedBy) {
+            this.time = time;
+            this.studentId = studentId;
+            this.studentName = studentName;
+            this.amountCents = amountCents;
+            this.newBalanceCents = newBalanceCents;
+            this.processedBy = processedBy;
+        }
+
+        // The human-readable block kept in all_receipts.txt
+        String toText() {
+            return "----------------------------------\n" +
+                    "Date: " + new Date(time) + "\n" +
+                    "Student: " + studentName + " (" + studentId + ")\n" +
+                    "Amount Paid: RM " + Money.format(amountCents) + "\n" +
+                    "New Balance: RM " + Money.format(newBalanceCents) + "\n" +
+                    (reference != null ? "Reference: " + reference + "\n" : "") +
+                    "Processed By: " + processedBy + "\n" +
+                    "----------------------------------\n";
+        }
+
+        String toSummary() {
+            return new Date(time) + "  Paid RM " + Money.format(amountCents) +
+                    ", balance RM " + Money.format(newBalanceCents) + " (" + processedBy + ")";
+        }
+    }
+
+    // --- Receipt Ledger ---
+    // Append-only binary log of payments (receipts.ledger) with an in-memory index of
+    // record offsets per student and per month, so "recent payments" and "income this
+    // month" read only the records they need instead of scanning all_receipts.txt.
+    // The file starts with "ATCL" and the format version; each record after that is
+    // [int length][long time][UTF id][UTF name][long amount in sen]
+    // [long newBalance in sen][UTF processedBy], then [UTF reference] for an imported
+    // payment; readers that stop after processedBy skip it with the rest of the record.
+    // The references are indexed too, so a bank statement cannot be imported twice.
+    // all_receipts.txt is still written for people.
+    // A ledger from before amounts were kept in sen has no header and doubles for the
+    // two amounts; it is rewritten in the current format the first time it is opened.
+    // Several desks can share the file: records are appended in append mode under an
+    // exclusive file lock, and each desk indexes whatever others have added since it
+    // last looked before it answers a query.
+    static class ReceiptLedger {
+        static final int MAGIC = 0x4154434C; // "ATCL"
+        static final int VERSION = 2;
+        static final int HEADER_SIZE = 8;
+
+        private static ReceiptLedger instance;
+
+        private final String filename;
+        private final RandomAccessFile file;
+        private final FileChannel appender;
+        private final Map<String, List<Long>> offsetsByStudent = new HashMap<>();
+        private final Map<String, List<Long>> offsetsByMonth = new HashMap<>();
+        private final Set<String> references = new HashSet<>();
+        // End of the last complete record in the indexes
+        private long indexedLength = HEADER_SIZE;
+        private final GroupCommit syncs = new GroupCommit();
+
+        static synchronized ReceiptLedger getInstance() {
+            if (instance == null) {
+                try {
+                    instance = new ReceiptLedger("receipts.ledger", "all_receipts.txt");
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open receipts.ledger", e);
+                }
+            }
+            return instance;
+        }
+
+        ReceiptLedger(String filename, String legacyReceipts) throws IOException {
+            this.filename = filename;
+            if (new File(filename).exists() && new File(filename).length() > 0 && !hasHeader(filename)) upgrade(filename);
+            appender = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            file = new RandomAccessFile(filename, "r");
+            List<Receipt> legacy = null;
+            java.nio.channels.FileLock lock = appender.lock();
+            try {
+                if (appender.size() == 0) {
+                    ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_SIZE);
+                    DataOutputStream out = new DataOutputStream(header);
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    writeFully(header.toByteArray());
+                    legacy = parseLegacyReceipts(legacyReceipts);
+                } else {
+                    checkVersion();
+                    catchUp(true);
+                }
+            } finally {
+                lock.release();
+            }
+            if (legacy != null) appendAll(legacy);
+        }
+
+        private static boolean hasHeader(String filename) throws IOException {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+                return new File(filename).length() >= HEADER_SIZE && in.readInt() == MAGIC;
+            }
+        }
+
+        // Rewrites a ledger without a header, converting its double amounts to sen. A
+        // record cut off at the end is dropped, as catchUp would.
+        private static void upgrade(String filename) throws IOException {
+            List<Receipt> receipts = new ArrayList<>();
+            long length = new File(filename).length();
+            long offset = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+                while (offset + 4 <= length) {
+                    int size = in.readInt();
+                    if (offset + 4 + size > length) break;
+                    byte[] body = new byte[size];
+                    in.readFully(body);
+                    DataInputStream rec = new DataInputStream(new ByteArrayInputStream(body));
+                    receipts.add(new Receipt(rec.readLong(), rec.readUTF(), rec.readUTF(),
+                            Money.ofDouble(rec.readDouble()), Money.ofDouble(rec.readDouble()), rec.readUTF()));
+                    offset += 4 + size;
+                }
+            }
+            boolean written = FileManager.writeAtomically(filename, stream -> {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (Receipt r : receipts) {
+                    byte[] body = encode(r);
+                    out.writeInt(body.length);
+                    out.write(body);
+                }
+                out.flush();
+            });
+            if (!written) throw new IOException("could not upgrade " + filename);
+        }
+
+        static String monthKey(long time) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(time);
+            return String.format("%04d-%02d", cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+        }
+
+        private void checkVersion() throws IOException {
+            file.seek(0);
+            file.readInt();
+            int version = file.readInt();
+            if (version != VERSION) throw new IOException(filename + " has unsupported format version " + version);
+        }
+
+        // Indexes the records appended since the last call, by this desk or another. A
+        // record cut short at the end is either still being written by another desk or,
+        // when we hold the file lock (owner), was left by a crash and is cut off.
+        // Reads through our own handle: closing any other handle on the file would drop
+        // this program's lock on it.
+        private void catchUp(boolean owner) throws IOException {
+            long length = file.length();
+            if (length <= indexedLength) return;
+            long offset = indexedLength;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    java.nio.channels.Channels.newInputStream(file.getChannel().position(offset)), 1 << 16));
+            while (offset + 4 <= length) {
+                int size = in.readInt();
+                if (size < 0 || offset + 4 + size > length) break;
+                byte[] body = new byte[size];
+                in.readFully(body);
+                index(decode(body), offset);
+                offset += 4 + size;
+            }
+            indexedLength = offset;
+            if (owner && offset != length) {
+                // A payment was cut off mid-write; drop the partial record
+                System.err.println("Truncating incomplete record at end of receipts.ledger");
+                appender.truncate(offset);
+            }
+        }
+
+        private void refresh() {
+            try {
+                catchUp(false);
+            } catch (IOException e) {
+                System.err.println("Could not read receipts.ledger: " + e.getMessage());
+            }
+        }
+
+        private void index(Receipt r, long offset) {
+            offsetsByStudent.computeIfAbsent(r.studentId, k -> new ArrayList<>()).add(offset);
+            offsetsByMonth.computeIfAbsent(monthKey(r.time), k -> new ArrayList<>()).add(offset);
+            if (r.reference != null) references.add(r.reference);
+        }
+
+        void append(Receipt r) {
+            appendAll(Collections.singletonList(r));
+        }
+
+        // Writes the whole batch with one write, then one sync that is shared with any
+        // other thread appending at the same time
+        void appendAll(List<Receipt> receipts) {
+            if (receipts.isEmpty()) return;
+            sync(write(Collections.emptyList(), () -> receipts, new ArrayList<>()));
+        }
+
+        // For imported payments: unless one of the bank references is already in the
+        // ledger, runs payments and appends the receipts it returns (none if it returns
+        // null). The check, the payments and the write all happen under the file lock, so
+        // two desks importing the same statement cannot both apply it. Returns the
+        // references found on file, in which case payments was not run.
+        List<String> appendUnlessRecorded(Collection<String> references, Supplier<List<Receipt>> payments) {
+            List<String> recorded = new ArrayList<>();
+            sync(write(references, payments, recorded));
+            return recorded;
+        }
+
+        private void sync(long ticket) {
+            if (ticket == 0 || FileManager.durability == FileManager.Durability.NONE) return;
+            syncs.await(ticket, () -> {
+                try {
+                    appender.force(false);
+                } catch (IOException e) {
+                    System.err.println("Could not sync receipts.ledger: " + e.getMessage());
+                }
+            });
+        }
+
+        // Under the file lock, first indexes what other desks appended, so the offsets
+        // of this batch follow on from the true end of the file and their references
+        // are checked too
+        private synchronized long write(Collection<String> references, Supplier<List<Receipt>> build, List<String> recorded) {
+            try {
+                java.nio.channels.FileLock lock = appender.lock();
+                try {
+                    catchUp(true);
+                    for (String reference : references) {
+                        if (this.references.contains(reference)) recorded.add(reference);
+                    }
+                    if (!recorded.isEmpty()) return 0;
+                    List<Receipt> receipts = build.get();
+                    if (receipts == null || receipts.isEmpty()) return 0;
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * receipts.size());
+                    DataOutputStream out = new DataOutputStream(bytes);
+                    long start = indexedLength;
+                    long[] offsets = new long[receipts.size()];
+                    for (int i = 0; i < receipts.size(); i++) {
+                        offsets[i] = start + out.size();
+                        byte[] body = encode(receipts.get(i));
+                        out.writeInt(body.length);
+                        out.write(body);
+                    }
+                    writeFully(bytes.toByteArray());
+                    for (int i = 0; i < receipts.size(); i++) index(receipts.get(i), offsets[i]);
+                    indexedLength = start + out.size();
+                } finally {
+                    lock.release();
+                }
+                return syncs.ticket();
+            } catch (IOException e) {
+                System.err.println("Could not append to receipts.ledger: " + e.getMessage());
+                return 0;
+            }
+        }
+
+        private void writeFully(byte[] bytes) throws IOException {
+            java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) appender.write(buffer);
+        }
+
+        private Receipt read(long offset) throws IOException {
+            file.seek(offset);
+            byte[] body = new byte[file.readInt()];
+            file.readFully(body);
+            return decode(body);
+        }
+
+        private static byte[] encode(Receipt r) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+            DataOutputStream rec = new DataOutputStream(body);
+            rec.writeLong(r.time);
+            rec.writeUTF(r.studentId);
+            rec.writeUTF(r.studentName);
+            rec.writeLong(r.amountCents);
+            rec.writeLong(r.newBalanceCents);
+            rec.writeUTF(r.processedBy);
+            if (r.reference != null) rec.writeUTF(r.reference);
+            return body.toByteArray();
+        }
+
+        private static Receipt decode(byte[] body) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            Receipt r = new Receipt(in.readLong(), in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readUTF());
+            if (in.available() > 0) r.reference = in.readUTF();
+            return r;
+        }
+
+        // Most recent first
+        synchronized List<Receipt> recentForStudent(String studentId, int limit) {
+            refresh();
+            List<Receipt> result = new ArrayList<>();
+            List<Long> offsets = offsetsByStudent.getOrDefault(studentId, Collections.emptyList());
+            try {
+                for (int i = offsets.size() - 1; i >= 0 && result.size() < limit; i--) {
+                    result.add(read(offsets.get(i)));
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read receipts.ledger: " + e.getMessage());
+            }
+            return result;
+        }
+
+        synchronized List<Receipt> forMonth(String monthKey) {
+            refresh();
+            List<Receipt> result = new ArrayList<>();
+            try {
+                for (long offset : offsetsByMonth.getOrDefault(monthKey, Collections.emptyList())) {
+                    result.add(read(offset));
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read receipts.ledger: " + e.getMessage());
+            }
+            return result;
+        }
+
+        // Offset just past the last complete record
+        synchronized long length() {
+            refresh();
+            return indexedLength;
+        }
+
+        // Passes every record from offset (the start of a record) to the end to action,
+        // in the order they were written, and returns the offset after the last one
+        synchronized long forEachSince(long offset, Consumer<Receipt> action) {
+            refresh();
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        java.nio.channels.Channels.newInputStream(file.getChannel().position(offset)), 1 << 16));
+                while (offset < indexedLength) {
+                    byte[] body = new byte[in.readInt()];
+                    in.readFully(body);
+                    action.accept(decode(body));
+                    offset += 4 + body.length;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read receipts.ledger: " + e.getMessage());
+            }
+            return offset;
+        }
+
+        synchronized List<String> months() {
+            refresh();
+            List<String> months = new ArrayList<>(offsetsByMonth.keySet());
+            Collections.sort(months);
+            return months;
+        }
+
+        // Reads the free-text receipt blocks written before the ledger existed
+        static List<Receipt> parseLegacyReceipts(String filename) {
+            List<Receipt> receipts = new ArrayList<>();
+            java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.ENGLISH);
+            Receipt current = null;
+            for (String line : FileManager.readAllLines(filename)) {
+                try {
+                    if (line.startsWith("Date: ")) {
+                        current = new Receipt(dateFormat.parse(line.substring(6)).getTime(), "", "", 0, 0, "");
+                    } else if (current == null) {
+                        continue;
+                    } else if (line.startsWith("Student: ") && line.endsWith(")")) {
+                        int open = line.lastIndexOf(" (");
+                        current.studentName = line.substring(9, open);
+                        current.studentId = line.substring(open + 2, line.length() - 1);
+                    } else if (line.startsWith("Amount Paid: RM ")) {
+                        current.amountCents = Money.parse(line.substring(16).replace(",", ""));
+                    } else if (line.startsWith("New Balance: RM ")) {
+                        current.newBalanceCents = Money.parse(line.substring(16).replace(",", ""));
+                    } else if (line.startsWith("Reference: ")) {
+                        current.reference = line.substring(11);
+                    } else if (line.startsWith("Processed By: ")) {
+                        current.processedBy = line.substring(14);
+                        if (!current.studentId.isEmpty()) receipts.add(current);
+                        current = null;
+                    }
+                } catch (Exception e) {
+                    current = null;
+                }
+            }
+            return receipts;
+        }
+    }
+
+    // --- Income Rollups ---
+    // Running income totals per month, broken down by subject, level and receptionist,
+    // saved to income_rollups.txt (month;dimension;key;amount) so the income report never
+    // rescans the receipts. The totals are built from the receipt ledger, and the file
+    // records how far into the ledger they go (LEDGER;offset). Before answering or
+    // saving, a desk adds the ledger records after that point, whoever wrote them, so
+    // every desk's totals cover every payment and the last desk to save drops nothing.
+    // A payment is split evenly across the student's subjects, as in the old report,
+    // with any leftover sen going to the first subjects.
+    static class IncomeRollups {
+        static final String TOTAL = "TOTAL";
+        static final String COUNT = "COUNT";
+        static final String SUBJECT = "SUBJECT";
+        static final String LEVEL = "LEVEL";
+        static final String RECEPTIONIST = "RECEPTIONIST";
+        static final String LEDGER = "LEDGER";
+
+        private static IncomeRollups instance;
+
+        private final String filename;
+        // month -> "dimension;key" -> amount in sen
+        private final Map<String, Map<String, Long>> months = new TreeMap<>();
+        // month -> number of payments, saved as month;COUNT;;n
+        private final Map<String, Long> counts = new HashMap<>();
+        // Ledger offset the totals go up to; 0 if the file did not say
+        private long ledgerOffset;
+        private boolean dirty;
+        // Saves are coalesced: one rewrite of the file covers every payment recorded before it
+        private final GroupCommit saves = new GroupCommit();
+
+        static synchronized IncomeRollups getInstance() {
+            if (instance == null) {
+                instance = new IncomeRollups("income_rollups.txt");
+                if (instance.ledgerOffset == 0) instance.rebuild();
+            }
+            return instance;
+        }
+
+        IncomeRollups(String filename) {
+            this.filename = filename;
+            for (String line : FileManager.readAllLines(filename)) {
+                String[] parts = line.split(";", -1);
+                try {
+                    if (parts.length == 2 && parts[0].equals(LEDGER)) {
+                        ledgerOffset = Long.parseLong(parts[1]);
+                    } else if (parts.length >= 4 && parts[1].equals(COUNT)) {
+                        // Older files kept the count in hundredths, e.g. "5.00"
+                        counts.put(parts[0], parts[3].indexOf('.') < 0
+                                ? Long.parseLong(parts[3]) : Money.parse(parts[3]) / 100);
+                    } else if (parts.length >= 4) {
+                        months.computeIfAbsent(parts[0], k -> new HashMap<>())
+                              .put(parts[1] + ";" + parts[2], Money.parse(parts[3]));
+                    }
+                } catch (NumberFormatException e) {}
+            }
+        }
+
+        // Recomputes every month from the whole receipt ledger, using each student's
+        // current level and subjects
+        void rebuild() {
+            long ticket;
+            synchronized (this) {
+                months.clear();
+                counts.clear();
+                ledgerOffset = ReceiptLedger.HEADER_SIZE;
+                catchUp();
+                ticket = saves.ticket();
+            }
+            saves.await(ticket, this::save);
+        }
+
+        // Call after appending to the ledger: adds the new records and saves
+        void update() {
+            long ticket;
+            synchronized (this) {
+                catchUp();
+                if (!dirty) return;
+                ticket = saves.ticket();
+            }
+            saves.await(ticket, this::save);
+        }
+
+        // Adds the ledger records written since ledgerOffset
+        private void catchUp() {
+            ReceiptLedger ledger = ReceiptLedger.getInstance();
+            if (ledgerOffset > ledger.length()) {
+                // The ledger is shorter than what we counted, so it was replaced: start over
+                months.clear();
+                counts.clear();
+                ledgerOffset = ReceiptLedger.HEADER_SIZE;
+            }
+            StudentRepository students = StudentRepository.getInstance();
+            long end = ledger.forEachSince(ledgerOffset, r -> add(r, students.findById(r.studentId)));
+            if (end != ledgerOffset) dirty = true;
+            ledgerOffset = end;
+        }
+
+        private void add(Receipt r, StudentRecord student) {
+            String month = ReceiptLedger.monthKey(r.time);
+            Map<String, Long> totals = months.computeIfAbsent(month, k -> new HashMap<>());
+            totals.merge(TOTAL + ";", r.amountCents, Long::sum);
+            counts.merge(month, 1L, Long::sum);
+            totals.merge(RECEPTIONIST + ";" + r.processedBy, r.amountCents, Long::sum);
+            if (student == null) {
+                totals.merge(LEVEL + ";Unknown", r.amountCents, Long::sum);
+                return;
+            }
+            totals.merge(LEVEL + ";" + student.level, r.amountCents, Long::sum);
+            SubjectCatalogue.SubjectList subjects = student.subjectList();
+            for (int i = 0; i < subjects.codes.length; i++) {
+                totals.merge(SUBJECT + ";" + SubjectCatalogue.subjectName(subjects.codes[i]),
+                        Money.share(r.amountCents, subjects.entries, i), Long::sum);
+            }
+        }
+
+        private void save() {
+            List<String> lines = new ArrayList<>();
+            synchronized (this) {
+                dirty = false;
+                lines.add(LEDGER + ";" + ledgerOffset);
+                for (Map.Entry<String, Map<String, Long>> month : months.entrySet()) {
+                    for (Map.Entry<String, Long> total : month.getValue().entrySet()) {
+                        lines.add(month.getKey() + ";" + total.getKey() + ";" + Money.format(total.getValue()));
+                    }
+                    lines.add(month.getKey() + ";" + COUNT + ";;" + counts.getOrDefault(month.getKey(), 0L));
+                }
+            }
+            FileManager.writeAllLines(filename, lines);
+        }
+
+        synchronized List<String> months() {
+            catchUp();
+            return new ArrayList<>(months.keySet());
+        }
+
+        // In sen
+        synchronized long total(String month) {
+            catchUp();
+            return months.getOrDefault(month, Collections.emptyMap()).getOrDefault(TOTAL + ";", 0L);
+        }
+
+        synchronized int paymentCount(String month) {
+            catchUp();
+            return (int) (long) counts.getOrDefault(month, 0L);
+        }
+
+        // key -> amount in sen for one dimension of a month, sorted by key
+        synchronized Map<String, Long> breakdown(String month, String dimension) {
+            catchUp();
+            Map<String, Long> result = new TreeMap<>();
+            String prefix = dimension + ";";
+            for (Map.Entry<String, Long> e : months.getOrDefault(month, Collections.emptyMap()).entrySet()) {
+                if (e.getKey().startsWith(prefix)) result.put(e.getKey().substring(prefix.length()), e.getValue());
+            }
+            return result;
+        }
+    }
+
+    // --- Credential Index ---
+    // Staff logins from admin.txt, receptionist.txt and tutors.txt, loaded once and
+    // keyed by username. Only salted SHA-256 hashes of the passwords are kept. A file
+    // is re-read when its modification time changes. Students log in with their name
+    // or ID and IC, which are looked up through the StudentRepository.
+    static class CredentialIndex {
+        private static final String[][] SOURCES = {
+            {"admin.txt", "admin"}, {"receptionist.txt", "receptionist"}, {"tutors.txt", "tutor"}
+        };
+
+        static class Credential {
+            final String role;
+            final byte[] passwordHash;
+
+            Credential(String role, byte[] passwordHash) {
+                this.role = role;
+                this.passwordHash = passwordHash;
+            }
+        }
+
+        private static CredentialIndex instance;
+
+        // username -> credentials in the order admin, receptionist, tutor
+        private final Map<String, List<Credential>> byUsername = new HashMap<>();
+        private final long[] loadedModified = new long[SOURCES.length];
+        private final byte[] salt = new byte[16];
+
+        // Login latency, for the benchmarks and for spotting slow logins
+        long loginCount;
+        long loginNanos;
+
+        static synchronized CredentialIndex getInstance() {
+            if (instance == null) instance = new CredentialIndex();
+            return instance;
+        }
+
+        CredentialIndex() {
+            new java.security.SecureRandom().nextBytes(salt);
+            load();
+        }
+
+        private void load() {
+            byUsername.clear();
+            for (int i = 0; i < SOURCES.length; i++) {
+                loadedModified[i] = new File(SOURCES[i][0]).lastModified();
+                FieldCursor fields = new FieldCursor();
+                for (String line : FileManager.readAllLines(SOURCES[i][0])) {
+                    if (fields.reset(line, ',').fieldCount() >= 2) {
+                        fields.at(0);
+                        String username = fields.field();
+                        fields.next();
+                        byUsername.computeIfAbsent(username, k -> new ArrayList<>(1))
+                                  .add(new Credential(SOURCES[i][1], hash(fields.field())));
+                    }
+                }
+            }
+        }
+
+        private void refreshIfChanged() {
+            for (int i = 0; i < SOURCES.length; i++) {
+                if (new File(SOURCES[i][0]).lastModified() != loadedModified[i]) {
+                    load();
+                    return;
+                }
+            }
+        }
+
+        private byte[] hash(String password) {
+            try {
+                java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+                digest.update(salt);
+                return digest.digest(password.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // Returns the role for a matching username and password, or null
+        String resolveRole(String username, String password) {
+            TuitionService.Session session = authenticate(username, password);
+            return session == null ? null : session.role;
+        }
+
+        // Returns who logged in, or null. A student is identified by their ID, whichever
+        // of name or ID they typed.
+        synchronized TuitionService.Session authenticate(String username, String password) {
+            long start = System.nanoTime();
+            try {
+                refreshIfChanged();
+                List<Credential> credentials = byUsername.get(username);
+                if (credentials != null) {
+                    byte[] attempt = hash(password);
+                    for (Credential c : credentials) {
+                        if (java.security.MessageDigest.isEqual(c.passwordHash, attempt)) return new TuitionService.Session(c.role, username);
+                    }
+                }
+                // Names are not unique, so try every student the username could mean
+                for (StudentRecord student : StudentRepository.getInstance().findAllByNameOrId(username)) {
+                    if (student.ic.equals(password)) return new TuitionService.Session("student", student.id);
+                }
+                return null;
+            } finally {
+                loginCount++;
+                loginNanos += System.nanoTime() - start;
+            }
+        }
+
+        synchronized double averageLoginMillis() {
+            return loginCount == 0 ? 0.0 : loginNanos / 1e6 / loginCount;
+        }
+    }
+
+    // --- CSV Import ---
+    // Splits one CSV line. Fields may be wrapped in double quotes so they can hold commas
+    // (addresses, subject lists); "" inside quotes is a literal quote.
+    static class Csv {
+        // Import reports list at most this many problems
+        static final int MAX_REPORTED_ERRORS = 50;
+
+        static String[] split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString().trim());
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    // --- Batch Payment Import ---
+    // Imports a bank statement CSV of studentId,amount,date,reference (an optional header
+    // line is skipped). Every row is checked first and nothing is applied unless all of
+    // them pass, including that no reference was imported before. The batch then costs
+    // one students.txt write, one ledger write, one rollup save and one append to
+    // all_receipts.txt, whatever its size.
+    static class PaymentImport {
+        static class Row {
+            String studentId;
+            long amountCents;
+            long time;
+            String reference;
+        }
+
+        static class Result {
+            int rows;
+            long totalCents;
+            long parseNanos;
+            long applyNanos;
+            final List<String> errors = new ArrayList<>();
+
+            String report() {
+                StringBuilder sb = new StringBuilder();
+                if (!errors.isEmpty()) {
+                    sb.append("Import rejected, nothing was applied. ").append(errors.size()).append(" problem(s):\n");
+                    for (int i = 0; i < errors.size() && i < Csv.MAX_REPORTED_ERRORS; i++) {
+                        sb.append("  ").append(errors.get(i)).append("\n");
+                    }
+                    if (errors.size() > Csv.MAX_REPORTED_ERRORS) {
+                        sb.append("  ... and ").append(errors.size() - Csv.MAX_REPORTED_ERRORS).append(" more\n");
+                    }
+                    return sb.toString();
+                }
+                double seconds = (parseNanos + applyNanos) / 1e9;
+                sb.append("Imported ").append(rows).append(" payments, RM ");
+                Money.append(sb, totalCents).append("\n");
+                sb.append(String.format("Validate: %.1f ms, apply: %.1f ms, %.0f payments/sec%n",
+                        parseNanos / 1e6, applyNanos / 1e6, seconds == 0 ? 0.0 : rows / seconds));
+                return sb.toString();
+            }
+        }
+
+        private static final String[] DATE_FORMATS = {"yyyy-MM-dd", "dd/MM/yyyy", "yyyy-MM-dd HH:mm"};
+
+        static Result importFile(File csv, String processedBy) {
+            Result result = new Result();
+            long start = System.nanoTime();
+            List<Row> rows = parse(csv, result.errors);
+            result.parseNanos = System.nanoTime() - start;
+            if (!result.errors.isEmpty()) return result;
+
+            start = System.nanoTime();
+            StudentRepository repository = StudentRepository.getInstance();
+            List<String> ids = new ArrayList<>(rows.size());
+            long[] amounts = new long[rows.size()];
+            for (Row row : rows) {
+                amounts[ids.size()] = row.amountCents;
+                ids.add(row.studentId);
+            }
+            repository.paymentLocks.lockAll(ids);
+            try {
+                if (!applyAll(rows, ids, amounts, processedBy, result)) return result;
+            } finally {
+                repository.paymentLocks.unlockAll(ids);
+            }
+            result.rows = rows.size();
+            result.applyNanos = System.nanoTime() - start;
+            return result;
+        }
+
+        // The ledger runs the payments only once it has checked, under its file lock, that
+        // none of the references is already on file from an earlier import at any desk
+        private static boolean applyAll(List<Row> rows, List<String> ids, long[] amounts, String processedBy, Result result) {
+            StudentRepository repository = StudentRepository.getInstance();
+            List<String> references = new ArrayList<>(rows.size());
+            for (Row row : rows) references.add(row.reference);
+            StringBuilder text = new StringBuilder();
+            List<String> recorded = ReceiptLedger.getInstance().appendUnlessRecorded(references, () -> {
+                long[] balances = repository.applyPayments(ids, amounts);
+                if (balances == null) {
+                    result.errors.add("A student was deleted while the file was being checked; please import again.");
+                    return null;
+                }
+                List<Receipt> receipts = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    Row row = rows.get(i);
+                    StudentRecord student = repository.findById(row.studentId);
+                    Receipt receipt = new Receipt(row.time, row.studentId, student.name, row.amountCents, balances[i], processedBy);
+                    receipt.reference = row.reference;
+                    receipts.add(receipt);
+                    text.append(receipt.toText());
+                    result.totalCents += row.amountCents;
+                }
+                return receipts;
+            });
+            for (String reference : recorded) {
+                result.errors.add("Reference " + reference + " was already imported");
+            }
+            if (!result.errors.isEmpty()) return false;
+            IncomeRollups.getInstance().update();
+            FileManager.appendLine("all_receipts.txt", text.toString());
+            return true;
+        }
+
+        private static List<Row> parse(File csv, List<String> errors) {
+            List<Row> rows = new ArrayList<>();
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(csv.toPath());
+            } catch (IOException e) {
+                errors.add("Could not read " + csv.getName() + ": " + e.getMessage());
+                return rows;
+            }
+            StudentRepository repository = StudentRepository.getInstance();
+            Set<String> references = new HashSet<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).trim();
+                if (line.isEmpty()) continue;
+                if (i == 0 && line.toLowerCase().startsWith("studentid")) continue;
+                String[] parts = Csv.split(line);
+                String where = "Line " + (i + 1) + ": ";
+                if (parts.length != 4) {
+                    errors.add(where + "expected studentId,amount,date,reference");
+                    continue;
+                }
+                Row row = new Row();
+                row.studentId = parts[0];
+                row.reference = parts[3];
+                if (repository.findById(row.studentId) == null) errors.add(where + "unknown student " + row.studentId);
+                try {
+                    row.amountCents = Money.parse(parts[1]);
+                    if (row.amountCents <= 0) errors.add(where + "amount must be positive");
+                } catch (NumberFormatException e) {
+                    errors.add(where + "invalid amount " + parts[1]);
+                }
+                row.time = parseDate(parts[2]);
+                if (row.time < 0) errors.add(where + "invalid date " + parts[2]);
+                if (row.reference.isEmpty()) {
+                    errors.add(where + "missing reference");
+                } else if (!references.add(row.reference)) {
+                    errors.add(where + "reference " + row.reference + " appears twice");
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        private static long parseDate(String value) {
+            for (String format : DATE_FORMATS) {
+                java.text.SimpleDateFormat parser = new java.text.SimpleDateFormat(format);
+                parser.setLenient(false);
+                java.text.ParsePosition pos = new java.text.ParsePosition(0);
+                Date date = parser.parse(value, pos);
+                if (date != null && pos.getIndex() == value.length()) return date.getTime();
+            }
+            return -1;
+        }
+    }
+
+    // --- Bulk Registration ---
+    // Registers students from a CSV of name,ic,contact,address,level,subjects,month (an
+    // optional header line is skipped; quote fields that contain commas, such as the
+    // subject list). Rows are checked in parallel across cores, and nothing is
+    // registered unless every row passes and no IC is already on file. IDs come from
+    // StudentIdSequence and all records are written with a single append.
+    static class BulkRegistration {
+        static final Set<String> LEVELS = new HashSet<>(Arrays.asList(SubjectCatalogue.LEVELS));
+        static final int MAX_SUBJECTS = 3;
+
+        static class Result {
+            int rows;
+            String firstId;
+            String lastId;
+            long validateNanos;
+            long writeNanos;
+            final List<String> errors = new ArrayList<>();
+
+            String report() {
+                StringBuilder sb = new StringBuilder();
+                if (!errors.isEmpty()) {
+                    sb.append("Registration rejected, nobody was registered. ").append(errors.size()).append(" problem(s):\n");
+                    for (int i = 0; i < errors.size() && i < Csv.MAX_REPORTED_ERRORS; i++) {
+                        sb.append("  ").append(errors.get(i)).append("\n");
+                    }
+                    if (errors.size() > Csv.MAX_REPORTED_ERRORS) {
+                        sb.append("  ... and ").append(errors.size() - Csv.MAX_REPORTED_ERRORS).append(" more\n");
+                    }
+                    return sb.toString();
+                }
+                double seconds = (validateNanos + writeNanos) / 1e9;
+                sb.append("Registered ").append(rows).append(" students");
+                if (rows > 0) sb.append(", IDs ").append(firstId).append(" to ").append(lastId);
+                sb.append("\n");
+                sb.append(String.format("Validate: %.1f ms, write: %.1f ms, %.0f rows/sec%n",
+                        validateNanos / 1e6, writeNanos / 1e6, seconds == 0 ? 0.0 : rows / seconds));
+                return sb.toString();
+            }
+        }
+
+        static Result importFile(File csv) {
+            Result result = new Result();
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(csv.toPath());
+            } catch (IOException e) {
+                result.errors.add("Could not read " + csv.getName() + ": " + e.getMessage());
+                return result;
+            }
+
+            long start = System.nanoTime();
+            int first = !lines.isEmpty() && lines.get(0).trim().toLowerCase().startsWith("name,") ? 1 : 0;
+            // Each row is checked on its own, so the work spreads over the common fork-join pool
+            List<Object> checked = java.util.stream.IntStream.range(first, lines.size()).parallel()
+                    .filter(i -> !lines.get(i).trim().isEmpty())
+                    .mapToObj(i -> validate(i + 1, lines.get(i)))
+                    .collect(java.util.stream.Collectors.toList());
+            List<StudentRecord> records = new ArrayList<>(checked.size());
+            Set<String> ics = new HashSet<>();
+            for (Object row : checked) {
+                if (row instanceof String) {
+                    result.errors.add((String) row);
+                    continue;
+                }
+                StudentRecord r = (StudentRecord) row;
+                if (!ics.add(r.ic)) result.errors.add("IC " + r.ic + " appears more than once in the file");
+                records.add(r);
+            }
+            result.validateNanos = System.nanoTime() - start;
+            if (!result.errors.isEmpty()) return result;
+
+            start = System.nanoTime();
+            StudentIdSequence ids = StudentIdSequence.getInstance();
+            for (StudentRecord r : records) r.id = ids.next();
+            List<String> taken = StudentRepository.getInstance().registerAll(records);
+            result.writeNanos = System.nanoTime() - start;
+            if (!taken.isEmpty()) {
+                for (String key : taken) result.errors.add(key + " is already registered");
+                return result;
+            }
+            result.rows = records.size();
+            if (!records.isEmpty()) {
+                result.firstId = records.get(0).id;
+                result.lastId = records.get(records.size() - 1).id;
+            }
+            return result;
+        }
+
+        // Returns the parsed record (ID still blank) or an error message for the row
+        private static Object validate(int lineNo, String line) {
+            String where = "Line " + lineNo + ": ";
+            String[] f = Csv.split(line);
+            if (f.length != 7) return where + "expected name,ic,contact,address,level,subjects,month";
+            for (String field : f) {
+                if (field.isEmpty()) return where + "all fields are required";
+                if (field.contains(";")) return where + "fields may not contain ';'";
+            }
+            if (!LEVELS.contains(f[4])) return where + "unknown level " + f[4];
+            String[] subjects = f[5].split(",");
+            if (subjects.length > MAX_SUBJECTS) return where + "maximum " + MAX_SUBJECTS + " subjects allowed";
+            Set<String> distinct = new LinkedHashSet<>();
+            for (String subject : subjects) {
+                if (subject.trim().isEmpty()) return where + "empty subject name";
+                if (!distinct.add(subject.trim())) return where + "subject " + subject.trim() + " listed twice";
+            }
+            return StudentRecord.parse(String.join(";", f[0], "", f[1], f[2], f[3], f[4],
+                    String.join(",", distinct), "0.0", f[6]));
+        }
+    }
+
+    // --- Tuition Service ---
+    // The operations on student data that every desk performs: login, registration,
+    // payments, enrollment, deletion, the student's own views and profile, the tutor's
+    // roster and the income report. By default they run in this program against the
+    // local files. Started with -Datc.server=host:port they are sent to a DataServer
+    // instead, which keeps a single in-memory copy of the data for all desks.
+    interface TuitionService {
+        TuitionService INSTANCE = fromAddress(System.getProperty("atc.server"));
+
+        // Who is logged in. user is the username, or for a student their ID, since
+        // student names are not unique.
+        class Session {
+            final String role;
+            final String user;
+
+            Session(String role, String user) {
+                this.role = role;
+                this.user = user;
+            }
+        }
+
+        // The session, or null if the credentials are wrong
+        Session login(String username, String password);
+        // Assigns the next student ID and returns it, or null if the ID is taken
+        String register(StudentRecord record);
+        // The student after the payment, or null if there is no such student. A data
+        // server records its session's user as processedBy.
+        StudentRecord pay(String studentId, long amountCents, String processedBy);
+        boolean enroll(String studentId, String subjects);
+        boolean delete(String studentId);
+        // The student, with the profileVersion to pass to updateProfile, or null
+        StudentRecord student(String studentId);
+        // Summaries of the student's latest payments, newest first
+        List<String> recentPayments(String studentId, int limit);
+        StudentRepository.UpdateResult updateProfile(String studentId, int expectedVersion,
+                                                     String name, String contact, String address);
+        String enrolledStudents(String tutorUsername);
+        List<String> reportMonths();
+        String incomeReport(String month);
+
+        static TuitionService fromAddress(String address) {
+            if (address == null || address.trim().isEmpty()) return new LocalService();
+            return new RemoteService(address.trim());
+        }
+    }
+
+    static class LocalService implements TuitionService {
+        public Session login(String username, String password) {
+            return CredentialIndex.getInstance().authenticate(username, password);
+        }
+
+        public String register(StudentRecord record) {
+            record.id = StudentIdSequence.getInstance().next();
+            return StudentRepository.getInstance().register(record) ? record.id : null;
+        }
+
+        public StudentRecord pay(String studentId, long amountCents, String processedBy) {
+            return ReceptionistDashboard.acceptPayment(studentId, amountCents, processedBy);
+        }
+
+        public boolean enroll(String studentId, String subjects) {
+            return StudentRepository.getInstance().updateSubjects(studentId, subjects);
+        }
+
+        public boolean delete(String studentId) {
+            return StudentRepository.getInstance().delete(studentId);
+        }
+
+        public StudentRecord student(String studentId) {
+            return StudentRepository.getInstance().findById(studentId);
+        }
+
+        public List<String> recentPayments(String studentId, int limit) {
+            List<String> payments = new ArrayList<>();
+            for (Receipt receipt : ReceiptLedger.getInstance().recentForStudent(studentId, limit)) {
+                payments.add(receipt.toSummary());
+            }
+            return payments;
+        }
+
+        public StudentRepository.UpdateResult updateProfile(String studentId, int expectedVersion,
+                                                            String name, String contact, String address) {
+            return StudentRepository.getInstance().updateProfile(studentId, expectedVersion, name, contact, address);
+        }
+
+        public String enrolledStudents(String tutorUsername) {
+            return TutorDashboard.getEnrolledStudentsList(tutorUsername);
+        }
+
+        public List<String> reportMonths() {
+            return IncomeRollups.getInstance().months();
+        }
+
+        public String incomeReport(String month) {
+            return AdminDashboard.generateIncomeReport(month);
+        }
+    }
+
+    // Sends each operation to a DataServer as a form-encoded POST. Replies are plain text;
+    // 404 stands for a null/false result. The token from login goes with every later
+    // call, and the server acts as that user. The HTTP client keeps connections open, so
+    // a call costs one round trip.
+    static class RemoteService implements TuitionService {
+        private final String base;
+        private final java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                .connectTimeout(java.time.Duration.ofSeconds(5)).build();
+        private volatile String token;
+
+        RemoteService(String address) {
+            this.base = "http://" + address;
+        }
+
+        public Session login(String username, String password) {
+            String reply = call("/login", "username", username, "password", password);
+            if (reply == null) return null;
+            String[] lines = reply.split("\n");
+            token = lines[2];
+            return new Session(lines[0], lines[1]);
+        }
+
+        public String register(StudentRecord record) {
+            String id = call("/register", "student", record.toLine());
+            if (id != null) record.id = id;
+            return id;
+        }
+
+        // processedBy is the session's user on the server
+        public StudentRecord pay(String studentId, long amountCents, String processedBy) {
+            String line = call("/pay", "id", studentId, "amount", Money.format(amountCents));
+            return line == null ? null : StudentRecord.parse(line);
+        }
+
+        public boolean enroll(String studentId, String subjects) {
+            return call("/enroll", "id", studentId, "subjects", subjects) != null;
+        }
+
+        public boolean delete(String studentId) {
+            return call("/delete", "id", studentId) != null;
+        }
+
+        // The record's line, then its profile version
+        public StudentRecord student(String studentId) {
+            String reply = call("/student", "id", studentId);
+            if (reply == null) return null;
+            int newline = reply.lastIndexOf('\n');
+            StudentRecord student = StudentRecord.parse(reply.substring(0, newline));
+            student.profileVersion = Integer.parseInt(reply.substring(newline + 1));
+            return student;
+        }
+
+        public List<String> recentPayments(String studentId, int limit) {
+            return lines(call("/student/payments", "id", studentId, "limit", String.valueOf(limit)));
+        }
+
+        public StudentRepository.UpdateResult updateProfile(String studentId, int expectedVersion,
+                                                            String name, String contact, String address) {
+            return StudentRepository.UpdateResult.valueOf(call("/profile", "id", studentId,
+                    "version", String.valueOf(expectedVersion), "name", name, "contact", contact, "address", address));
+        }
+
+        // The roster of the session's tutor
+        public String enrolledStudents(String tutorUsername) {
+            return call("/roster");
+        }
+
+        public List<String> reportMonths() {
+            return lines(call("/report/months"));
+        }
+
+        public String incomeReport(String month) {
+            return call("/report/income", "month", month);
+        }
+
+        private static List<String> lines(String reply) {
+            List<String> lines = new ArrayList<>();
+            for (String line : reply.split("\n")) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+            return lines;
+        }
+
+        private String call(String path, String... params) {
+            String form = DataServer.encode(params);
+            if (token != null) form += (form.isEmpty() ? "" : "&") + DataServer.encode("token", token);
+            java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(java.net.URI.create(base + path))
+                    .timeout(java.time.Duration.ofSeconds(30))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(java.net.http.HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+            java.net.http.HttpResponse<String> response;
             try {
-                File file = new File(filename);
-                if (!file.exists()) return new ArrayList<>();
-                BufferedReader br = new BufferedReader(new FileReader(file));
-                List<String> lines = new ArrayList<>();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (!line.trim().isEmpty()) lines.add(line.trim());
-                }
-                br.close();
-                return lines;
+                response = client.send(request, java.net.http.HttpResponse.BodyHandlers.ofString());
             } catch (IOException e) {
-                return new ArrayList<>();
+                throw new UncheckedIOException("Could not reach the data server at " + base, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the data server");
             }
+            if (response.statusCode() == 404) return null;
+            if (response.statusCode() != 200) throw new IllegalStateException("Data server: " + response.body());
+            return response.body();
         }
-        public static void writeAllLines(String filename, List<String> lines) {
+    }
+
+    // --- Data Server ---
+    // Serves a TuitionService over HTTP for RemoteService clients. Start it with
+    //   java UnifiedTuitionSystem --server [port] [bind address]
+    // (default port 8731 on localhost) and point each desk at it with -Datc.server=host:port.
+    // /login hands out a random session token. Every other call must carry one and runs
+    // as the user it was issued to: without a token it is refused with 401, and for a role
+    // that does not do that job with 403. Students only reach their own record. Sessions
+    // last until the server stops.
+    // Desks pointed at the server never touch the data files, but the standalone tools
+    // still write them, so the server picks up outside changes as any desk does (store
+    // generation, ledger catch-up). Requests are handled on the Background executor, and
+    // payments for different students run in parallel as they do locally.
+    static class DataServer {
+        static final int DEFAULT_PORT = 8731;
+
+        static com.sun.net.httpserver.HttpServer start(String host, int port, TuitionService service) throws IOException {
+            // Headers and body go out as separate writes; without TCP_NODELAY the body waits
+            // for the client's delayed ACK and every call takes ~40 ms
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+            com.sun.net.httpserver.HttpServer server = com.sun.net.httpserver.HttpServer.create(
+                    new java.net.InetSocketAddress(host, port), 0);
+            Map<String, TuitionService.Session> sessions = new ConcurrentHashMap<>();
+            java.security.SecureRandom random = new java.security.SecureRandom();
+            server.createContext("/login", exchange -> respond(exchange, () -> {
+                Map<String, String> p = decode(exchange);
+                TuitionService.Session session = service.login(p.get("username"), p.get("password"));
+                if (session == null) return null;
+                byte[] bytes = new byte[24];
+                random.nextBytes(bytes);
+                String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+                sessions.put(token, session);
+                return session.role + "\n" + session.user + "\n" + token;
+            }));
+            handle(server, "/register", sessions, (session, p) -> {
+                String line = p.getOrDefault("student", "");
+                StudentRecord record = line.contains("\n") || line.contains("\r") ? null : StudentRecord.parse(line);
+                if (record == null) throw new IllegalArgumentException("Malformed student record");
+                return service.register(record);
+            }, "receptionist");
+            handle(server, "/pay", sessions, (session, p) -> {
+                StudentRecord student = service.pay(p.get("id"), Money.parse(p.get("amount")), session.user);
+                return student == null ? null : student.toLine();
+            }, "receptionist");
+            handle(server, "/enroll", sessions, (session, p) ->
+                    service.enroll(p.get("id"), field(p, "subjects")) ? "true" : null, "receptionist");
+            handle(server, "/delete", sessions, (session, p) -> service.delete(p.get("id")) ? "true" : null, "receptionist");
+            handle(server, "/student", sessions, (session, p) -> {
+                StudentRecord student = service.student(ownId(session, p));
+                return student == null ? null : student.toLine() + "\n" + student.profileVersion;
+            }, "student", "receptionist", "admin");
+            handle(server, "/student/payments", sessions, (session, p) ->
+                    String.join("\n", service.recentPayments(ownId(session, p), Integer.parseInt(p.get("limit")))),
+                    "student", "receptionist", "admin");
+            handle(server, "/profile", sessions, (session, p) -> service.updateProfile(ownId(session, p),
+                    Integer.parseInt(p.get("version")), field(p, "name"), field(p, "contact"), field(p, "address")).name(), "student");
+            handle(server, "/roster", sessions, (session, p) -> service.enrolledStudents(session.user), "tutor");
+            handle(server, "/report/months", sessions, (session, p) -> String.join("\n", service.reportMonths()), "admin");
+            handle(server, "/report/income", sessions, (session, p) -> service.incomeReport(p.get("month")), "admin");
+            server.setExecutor(Background.EXECUTOR);
+            server.start();
+            return server;
+        }
+
+        // An operation for a logged-in user in one of roles
+        private static void handle(com.sun.net.httpserver.HttpServer server, String path,
+                                   Map<String, TuitionService.Session> sessions,
+                                   java.util.function.BiFunction<TuitionService.Session, Map<String, String>, String> operation,
+                                   String... roles) {
+            server.createContext(path, exchange -> respond(exchange, () -> {
+                Map<String, String> p = decode(exchange);
+                TuitionService.Session session = sessions.get(p.getOrDefault("token", ""));
+                if (session == null) throw new NotAllowed(401, "Please log in");
+                if (!Arrays.asList(roles).contains(session.role)) {
+                    throw new NotAllowed(403, "Not available to " + session.role + " accounts");
+                }
+                return operation.apply(session, p);
+            }));
+        }
+
+        private static class NotAllowed extends RuntimeException {
+            final int status;
+
+            NotAllowed(int status, String message) {
+                super(message);
+                this.status = status;
+            }
+        }
+
+        // The requested student ID; a student may only ask for their own
+        private static String ownId(TuitionService.Session session, Map<String, String> p) {
+            String id = p.get("id");
+            if (session.role.equals("student") && !session.user.equals(id)) {
+                throw new NotAllowed(403, "Students can only see their own record");
+            }
+            return id;
+        }
+
+        // A field stored in students.txt, which cannot hold the separator or a line break
+        private static String field(Map<String, String> p, String name) {
+            String value = p.getOrDefault(name, "");
+            if (value.contains(";") || value.contains("\n") || value.contains("\r")) {
+                throw new IllegalArgumentException(name + " may not contain ';' or line breaks");
+            }
+            return value;
+        }
+
+        private static Map<String, String> decode(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                return decode(new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8));
+            }
+        }
+
+        private interface Reply {
+            String get() throws IOException;
+        }
+
+        private static void respond(com.sun.net.httpserver.HttpExchange exchange, Reply reply) throws IOException {
+            int status;
+            String body;
             try {
-                BufferedWriter bw = new BufferedWriter(new FileWriter(filename));
-                for (String line : lines) {
-                    bw.write(line + "\n");
+                body = reply.get();
+                status = body == null ? 404 : 200;
+            } catch (NotAllowed e) {
+                status = e.status;
+                body = e.getMessage();
+            } catch (RuntimeException e) {
+                status = e instanceof IllegalArgumentException ? 400 : 500;
+                body = String.valueOf(e.getMessage());
+            }
+            byte[] bytes = (body == null ? "" : body).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
                 }
-                bw.close();
-            } catch (IOException e) {}
+            }
+            exchange.close();
         }
-        public static void appendLine(String filename, String line) {
+
+        // name1, value1, name2, value2, ... as a form-encoded string
+        static String encode(String... params) {
+            StringBuilder form = new StringBuilder();
+            for (int i = 0; i + 1 < params.length; i += 2) {
+                if (form.length() > 0) form.append('&');
+                form.append(java.net.URLEncoder.encode(params[i], java.nio.charset.StandardCharsets.UTF_8)).append('=')
+                    .append(java.net.URLEncoder.encode(params[i + 1] == null ? "" : params[i + 1], java.nio.charset.StandardCharsets.UTF_8));
+            }
+            return form.toString();
+        }
+
+        static Map<String, String> decode(String form) {
+            Map<String, String> params = new HashMap<>();
+            for (String pair : form.split("&")) {
+                if (pair.isEmpty()) continue;
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                params.put(java.net.URLDecoder.decode(name, java.nio.charset.StandardCharsets.UTF_8),
+                        java.net.URLDecoder.decode(value, java.nio.charset.StandardCharsets.UTF_8));
+            }
+            return params;
+        }
+    }
+
+    // --- Background Data Access ---
+    // File reads and writes run here instead of on the Event Dispatch Thread, so the
+    // dashboards stay responsive. Results are handed back on the EDT. Virtual threads
+    // are used when the JVM has them (Java 21+), otherwise a small daemon thread pool.
+    static class Background {
+        static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
             try {
-                BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true));
-                bw.write(line + "\n");
-                bw.close();
-            } catch (IOException e) {}
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newFixedThreadPool(4, task -> {
+                    Thread t = new Thread(task, "atc-io");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
         }
-        public static void ensureFile(String filename, String headerOrSample) {
-            File file = new File(filename);
-            if (!file.exists() || file.length() == 0) {
-                try {
-                    BufferedWriter bw = new BufferedWriter(new FileWriter(file));
-                    if (headerOrSample != null && !headerOrSample.isEmpty()) {
-                        bw.write(headerOrSample + "\n");
-                    }
-                    bw.close();
-                } catch (IOException e) {}
+
+        // One single-threaded executor per data file, see update
+        private static final Map<String, ExecutorService> FILE_WRITERS = new ConcurrentHashMap<>();
+
+        static <T> CompletableFuture<T> supply(Supplier<T> task) {
+            return CompletableFuture.supplyAsync(task, EXECUTOR);
+        }
+
+        // Runs task in the background with a wait cursor on owner, then passes the
+        // result to onDone on the EDT
+        static <T> void run(Component owner, Supplier<T> task, Consumer<T> onDone) {
+            run(owner, null, task, onDone);
+        }
+
+        // As above, also showing an indeterminate progress bar while the task runs
+        static <T> void run(Component owner, JProgressBar progress, Supplier<T> task, Consumer<T> onDone) {
+            run(owner, progress, EXECUTOR, task, onDone);
+        }
+
+        // For a task that reads, changes and writes back filename: tasks for the same file
+        // run one at a time in the order they were started, as they did on the EDT, so a
+        // quick second edit cannot write back a copy that undoes the first
+        static <T> void update(Component owner, String filename, Supplier<T> task, Consumer<T> onDone) {
+            ExecutorService writer = FILE_WRITERS.computeIfAbsent(filename, f -> Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "atc-write-" + f);
+                t.setDaemon(true);
+                return t;
+            }));
+            run(owner, null, writer, task, onDone);
+        }
+
+        private static <T> void run(Component owner, JProgressBar progress, Executor executor, Supplier<T> task, Consumer<T> onDone) {
+            owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            if (progress != null) {
+                progress.setIndeterminate(true);
+                progress.setVisible(true);
             }
+            CompletableFuture.supplyAsync(task, executor).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                owner.setCursor(Cursor.getDefaultCursor());
+                if (progress != null) {
+                    progress.setIndeterminate(false);
+                    progress.setVisible(false);
+                }
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    JOptionPane.showMessageDialog(owner, "Error: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    onDone.accept(result);
+                }
+            }));
         }
     }
 
@@ -125,28 +3461,31 @@ public class UnifiedTuitionSystem {
             panel.add(label, BorderLayout.NORTH);
 
             String[] columns = {"Username", "Name", "Contact", "Delete"};
-            java.util.List<String[]> tutorData = new ArrayList<>();
-            for (String line : FileManager.readAllLines("tutors.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    tutorData.add(new String[]{parts[0], parts[2], parts[3], "Delete"});
-                }
-            }
-            String[][] data = tutorData.toArray(new String[0][]);
-            DefaultTableModel model = new DefaultTableModel(data, columns) {
+            DefaultTableModel model = new DefaultTableModel(columns, 0) {
                 public boolean isCellEditable(int row, int col) { return col == 3; }
             };
             JTable table = new JTable(model);
+            Background.run(this, () -> FileManager.readAllLines("tutors.txt"), lines -> {
+                for (String line : lines) {
+                    String[] parts = line.split(",");
+                    if (parts.length >= 4) {
+                        model.addRow(new String[]{parts[0], parts[2], parts[3], "Delete"});
+                    }
+                }
+            });
             JScrollPane scrollPane = new JScrollPane(table);
             panel.add(scrollPane, BorderLayout.CENTER);
 
             table.getColumn("Delete").setCellRenderer(new ButtonRenderer());
             table.getColumn("Delete").setCellEditor(new ButtonEditor(new JCheckBox(), (row) -> {
                 String username = (String) model.getValueAt(row, 0);
-                List<String> lines = FileManager.readAllLines("tutors.txt");
-                lines.removeIf(l -> l.startsWith(username + ","));
-                FileManager.writeAllLines("tutors.txt", lines);
                 model.removeRow(row);
+                Background.update(this, "tutors.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("tutors.txt");
+                    lines.removeIf(l -> l.startsWith(username + ","));
+                    FileManager.writeAllLines("tutors.txt", lines);
+                    return null;
+                }, done -> {});
             }));
 
             JPanel formPanel = new JPanel(new FlowLayout());
@@ -175,7 +3514,10 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                FileManager.appendLine("tutors.txt", u + "," + p + "," + n + "," + c);
+                Background.update(this, "tutors.txt", () -> {
+                    FileManager.appendLine("tutors.txt", u + "," + p + "," + n + "," + c);
+                    return null;
+                }, done -> {});
                 model.addRow(new Object[]{u, n, c, "Delete"});
                 userField.setText(""); passField.setText(""); nameField.setText(""); contactField.setText("");
             });
@@ -191,28 +3533,31 @@ public class UnifiedTuitionSystem {
             panel.add(label, BorderLayout.NORTH);
 
             String[] columns = {"Username", "Name", "Email", "Delete"};
-            java.util.List<String[]> recData = new ArrayList<>();
-            for (String line : FileManager.readAllLines("receptionist.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    recData.add(new String[]{parts[0], parts[2], parts[3], "Delete"});
-                }
-            }
-            String[][] data = recData.toArray(new String[0][]);
-            DefaultTableModel model = new DefaultTableModel(data, columns) {
+            DefaultTableModel model = new DefaultTableModel(columns, 0) {
                 public boolean isCellEditable(int row, int col) { return col == 3; }
             };
             JTable table = new JTable(model);
+            Background.run(this, () -> FileManager.readAllLines("receptionist.txt"), lines -> {
+                for (String line : lines) {
+                    String[] parts = line.split(",");
+                    if (parts.length >= 4) {
+                        model.addRow(new String[]{parts[0], parts[2], parts[3], "Delete"});
+                    }
+                }
+            });
             JScrollPane scrollPane = new JScrollPane(table);
             panel.add(scrollPane, BorderLayout.CENTER);
 
             table.getColumn("Delete").setCellRenderer(new ButtonRenderer());
             table.getColumn("Delete").setCellEditor(new ButtonEditor(new JCheckBox(), (row) -> {
                 String username = (String) model.getValueAt(row, 0);
-                List<String> lines = FileManager.readAllLines("receptionist.txt");
-                lines.removeIf(l -> l.startsWith(username + ","));
-                FileManager.writeAllLines("receptionist.txt", lines);
                 model.removeRow(row);
+                Background.update(this, "receptionist.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("receptionist.txt");
+                    lines.removeIf(l -> l.startsWith(username + ","));
+                    FileManager.writeAllLines("receptionist.txt", lines);
+                    return null;
+                }, done -> {});
             }));
 
             JPanel formPanel = new JPanel(new FlowLayout());
@@ -241,7 +3586,10 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                FileManager.appendLine("receptionist.txt", u + "," + p + "," + n + "," + eaddr);
+                Background.update(this, "receptionist.txt", () -> {
+                    FileManager.appendLine("receptionist.txt", u + "," + p + "," + n + "," + eaddr);
+                    return null;
+                }, done -> {});
                 model.addRow(new Object[]{u, n, eaddr, "Delete"});
                 userField.setText(""); passField.setText(""); nameField.setText(""); emailField.setText("");
             });
@@ -261,44 +3609,100 @@ public class UnifiedTuitionSystem {
             JScrollPane scrollPane = new JScrollPane(reportArea);
             panel.add(scrollPane, BorderLayout.CENTER);
 
+            String currentMonth = ReceiptLedger.monthKey(System.currentTimeMillis());
+            JComboBox<String> monthCombo = new JComboBox<>();
+            JPanel controls = new JPanel(new FlowLayout());
             JButton refreshBtn = new JButton("Refresh Report");
-            panel.add(refreshBtn, BorderLayout.SOUTH);
-
-            refreshBtn.addActionListener(e -> {
-                reportArea.setText(generateIncomeReport());
+            JProgressBar progress = new JProgressBar();
+            progress.setVisible(false);
+            controls.add(new JLabel("Month:"));
+            controls.add(monthCombo);
+            controls.add(refreshBtn);
+            controls.add(progress);
+            panel.add(controls, BorderLayout.SOUTH);
+
+            Consumer<String> showReport = month -> Background.run(this, progress,
+                    () -> TuitionService.INSTANCE.incomeReport(month), reportArea::setText);
+            ActionListener monthListener = e -> showReport.accept((String) monthCombo.getSelectedItem());
+            Runnable loadMonths = () -> Background.run(this, progress, () -> TuitionService.INSTANCE.reportMonths(), months -> {
+                if (!months.contains(currentMonth)) months.add(currentMonth);
+                Collections.sort(months, Collections.reverseOrder());
+                Object selected = monthCombo.getSelectedItem();
+                monthCombo.removeActionListener(monthListener);
+                monthCombo.setModel(new DefaultComboBoxModel<>(months.toArray(new String[0])));
+                monthCombo.setSelectedItem(selected != null ? selected : currentMonth);
+                monthCombo.addActionListener(monthListener);
+                showReport.accept((String) monthCombo.getSelectedItem());
             });
 
-            reportArea.setText(generateIncomeReport());
+            refreshBtn.addActionListener(e -> loadMonths.run());
+            loadMonths.run();
 
             return panel;
         }
 
-        private String generateIncomeReport() {
-            Map<String, Double> incomeByLevel = new HashMap<>();
-            Map<String, Double> incomeBySubject = new HashMap<>();
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 8) {
-                    String level = parts[5];
-                    String[] subjects = parts[6].split(",");
-                    double paid = 0.0;
-                    try { paid = Double.parseDouble(parts[7]); } catch (Exception e) {}
-                    incomeByLevel.put(level, incomeByLevel.getOrDefault(level, 0.0) + paid);
-                    for (String subj : subjects) {
-                        subj = subj.trim();
-                        if (!subj.isEmpty())
-                            incomeBySubject.put(subj, incomeBySubject.getOrDefault(subj, 0.0) + paid / subjects.length);
+        static String generateIncomeReport(String month) {
+            IncomeRollups rollups = IncomeRollups.getInstance();
+            StringBuilder sb = new StringBuilder();
+            sb.append("Payments Received in ").append(month).append(": RM ");
+            Money.append(sb, rollups.total(month))
+              .append(" (").append(rollups.paymentCount(month)).append(" payments)\n");
+            appendBreakdown(sb, "By Subject", rollups.breakdown(month, IncomeRollups.SUBJECT));
+            appendBreakdown(sb, "By Level", rollups.breakdown(month, IncomeRollups.LEVEL));
+            appendBreakdown(sb, "By Receptionist", rollups.breakdown(month, IncomeRollups.RECEPTIONIST));
+            sb.append("\n");
+            sb.append(generateBalanceReport());
+            return sb.toString();
+        }
+
+        private static void appendBreakdown(StringBuilder sb, String title, Map<String, Long> amounts) {
+            sb.append("\n").append(title).append(":\n");
+            for (Map.Entry<String, Long> e : amounts.entrySet()) {
+                sb.append("  ").append(e.getKey()).append(": RM ");
+                Money.append(sb, e.getValue()).append("\n");
+            }
+        }
+
+        static String generateBalanceReport() {
+            List<StudentRecord> students = StudentRepository.getInstance().findAll();
+            // Totals by catalogue code; a level or subject is listed only if some student has it
+            long[] incomeByLevel = new long[SubjectCatalogue.levelCount()];
+            long[] incomeBySubject = new long[SubjectCatalogue.subjectCount()];
+            boolean[] levelSeen = new boolean[incomeByLevel.length];
+            boolean[] subjectSeen = new boolean[incomeBySubject.length];
+            for (StudentRecord student : students) {
+                int level = student.levelCode();
+                SubjectCatalogue.SubjectList subjects = student.subjectList();
+                long paid = student.balanceCents;
+                // A name added to the catalogue after the arrays were sized needs more room
+                if (level >= incomeByLevel.length) {
+                    incomeByLevel = Arrays.copyOf(incomeByLevel, level + 1);
+                    levelSeen = Arrays.copyOf(levelSeen, level + 1);
+                }
+                incomeByLevel[level] += paid;
+                levelSeen[level] = true;
+                for (int i = 0; i < subjects.codes.length; i++) {
+                    int subject = subjects.codes[i];
+                    if (subject >= incomeBySubject.length) {
+                        incomeBySubject = Arrays.copyOf(incomeBySubject, subject + 1);
+                        subjectSeen = Arrays.copyOf(subjectSeen, subject + 1);
                     }
+                    incomeBySubject[subject] += Money.share(paid, subjects.entries, i);
+                    subjectSeen[subject] = true;
                 }
             }
             StringBuilder sb = new StringBuilder();
             sb.append("Income by Level:\n");
-            for (String lvl : incomeByLevel.keySet()) {
-                sb.append("  ").append(lvl).append(": RM ").append(String.format("%.2f", incomeByLevel.get(lvl))).append("\n");
+            for (int lvl = 0; lvl < incomeByLevel.length; lvl++) {
+                if (!levelSeen[lvl]) continue;
+                sb.append("  ").append(SubjectCatalogue.levelName(lvl)).append(": RM ");
+                Money.append(sb, incomeByLevel[lvl]).append("\n");
             }
             sb.append("\nIncome by Subject:\n");
-            for (String subj : incomeBySubject.keySet()) {
-                sb.append("  ").append(subj).append(": RM ").append(String.format("%.2f", incomeBySubject.get(subj))).append("\n");
+            for (int subj = 0; subj < incomeBySubject.length; subj++) {
+                if (!subjectSeen[subj]) continue;
+                sb.append("  ").append(SubjectCatalogue.subjectName(subj)).append(": RM ");
+                Money.append(sb, incomeBySubject[subj]).append("\n");
             }
             return sb.toString();
         }
@@ -316,18 +3720,18 @@ public class UnifiedTuitionSystem {
             JTextField emailField = new JTextField(20);
             JButton updateBtn = new JButton("Update Profile");
 
-            String[] profile = null;
-            for (String line : FileManager.readAllLines("admin.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4 && parts[0].equals(adminUsername)) {
-                    profile = parts;
-                    break;
+            Background.run(this, () -> {
+                FieldCursor fields = new FieldCursor();
+                for (String line : FileManager.readAllLines("admin.txt")) {
+                    if (fields.reset(line, ',').fieldCount() >= 4 && fields.matches(0, adminUsername)) return line.split(",");
                 }
-            }
-            if (profile != null) {
-                nameField.setText(profile[2]);
-                emailField.setText(profile[3]);
-            }
+                return null;
+            }, profile -> {
+                if (profile != null) {
+                    nameField.setText(profile[2]);
+                    emailField.setText(profile[3]);
+                }
+            });
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(nameLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(nameField, gbc);
@@ -342,18 +3746,21 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("admin.txt");
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(",");
-                    if (parts.length >= 4 && parts[0].equals(adminUsername)) {
-                        parts[2] = newName;
-                        parts[3] = newEmail;
-                        lines.set(i, String.join(",", parts));
-                        break;
+                Background.update(this, "admin.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("admin.txt");
+                    FieldCursor fields = new FieldCursor();
+                    for (int i = 0; i < lines.size(); i++) {
+                        if (fields.reset(lines.get(i), ',').fieldCount() >= 4 && fields.matches(0, adminUsername)) {
+                            String[] parts = lines.get(i).split(",");
+                            parts[2] = newName;
+                            parts[3] = newEmail;
+                            lines.set(i, String.join(",", parts));
+                            break;
+                        }
                     }
-                }
-                FileManager.writeAllLines("admin.txt", lines);
-                JOptionPane.showMessageDialog(this, "Profile updated!");
+                    FileManager.writeAllLines("admin.txt", lines);
+                    return null;
+                }, done -> JOptionPane.showMessageDialog(this, "Profile updated!"));
             });
 
             return panel;
@@ -410,6 +3817,7 @@ public class UnifiedTuitionSystem {
             JLabel monthLabel = new JLabel("Month of Enrollment:");
             JTextField monthField = new JTextField(10);
             JButton registerBtn = new JButton("Register Student");
+            JButton bulkBtn = new JButton("Bulk Register from CSV...");
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(nameLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(nameField, gbc);
@@ -426,6 +3834,19 @@ public class UnifiedTuitionSystem {
             gbc.gridx = 0; gbc.gridy = 6; panel.add(monthLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 6; panel.add(monthField, gbc);
             gbc.gridx = 0; gbc.gridy = 7; gbc.gridwidth = 2; panel.add(registerBtn, gbc);
+            gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 2; panel.add(bulkBtn, gbc);
+
+            bulkBtn.addActionListener(e -> {
+                JFileChooser chooser = new JFileChooser();
+                if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+                File csv = chooser.getSelectedFile();
+                Background.run(this, () -> BulkRegistration.importFile(csv), result -> {
+                    JTextArea reportArea = new JTextArea(result.report(), 12, 50);
+                    reportArea.setEditable(false);
+                    JOptionPane.showMessageDialog(this, new JScrollPane(reportArea), "Bulk Registration",
+                            result.errors.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                });
+            });
 
             registerBtn.addActionListener(e -> {
                 String name = nameField.getText().trim();
@@ -445,13 +3866,17 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "Maximum 3 subjects allowed.");
                     return;
                 }
-                String studentId = "S" + (System.currentTimeMillis() % 100000);
-                String balance = "0.0";
-                String record = String.join(";", name, studentId, ic, contact, address, level, subjects, balance, month);
-                FileManager.appendLine("students.txt", record);
-                JOptionPane.showMessageDialog(this, "Student registered! ID: " + studentId);
-                nameField.setText(""); icField.setText(""); contactField.setText(""); addressField.setText("");
-                subjectsField.setText(""); monthField.setText("");
+                // The service fills in the ID
+                StudentRecord record = StudentRecord.parse(String.join(";", name, "", ic, contact, address, level, subjects, "0.0", month));
+                Background.run(this, () -> TuitionService.INSTANCE.register(record), studentId -> {
+                    if (studentId == null) {
+                        JOptionPane.showMessageDialog(this, "Could not register: the student ID is already in use.");
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(this, "Student registered! ID: " + studentId);
+                    nameField.setText(""); icField.setText(""); contactField.setText(""); addressField.setText("");
+                    subjectsField.setText(""); monthField.setText("");
+                });
             });
 
             return panel;
@@ -487,24 +3912,14 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "Maximum 3 subjects allowed.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("students.txt");
-                boolean found = false;
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(";");
-                    if (parts.length >= 8 && parts[1].equals(studentId)) {
-                        parts[6] = newSubjects;
-                        lines.set(i, String.join(";", parts));
-                        found = true;
-                        break;
+                Background.run(this, () -> TuitionService.INSTANCE.enroll(studentId, newSubjects), updated -> {
+                    if (updated) {
+                        JOptionPane.showMessageDialog(this, "Enrollment updated!");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Student ID not found.");
                     }
-                }
-                if (found) {
-                    FileManager.writeAllLines("students.txt", lines);
-                    JOptionPane.showMessageDialog(this, "Enrollment updated!");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Student ID not found.");
-                }
-                studentIdField.setText(""); newSubjectsField.setText("");
+                    studentIdField.setText(""); newSubjectsField.setText("");
+                });
             });
 
             return panel;
@@ -522,12 +3937,26 @@ public class UnifiedTuitionSystem {
             JLabel amountLabel = new JLabel("Amount Paid (RM):");
             JTextField amountField = new JTextField(10);
             JButton payBtn = new JButton("Accept Payment");
+            JButton importBtn = new JButton("Import Bank Statement (CSV)...");
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(studentIdLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(studentIdField, gbc);
             gbc.gridx = 0; gbc.gridy = 1; panel.add(amountLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 1; panel.add(amountField, gbc);
             gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2; panel.add(payBtn, gbc);
+            gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; panel.add(importBtn, gbc);
+
+            importBtn.addActionListener(e -> {
+                JFileChooser chooser = new JFileChooser();
+                if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+                File csv = chooser.getSelectedFile();
+                Background.run(this, () -> PaymentImport.importFile(csv, receptionistUsername), result -> {
+                    JTextArea reportArea = new JTextArea(result.report(), 12, 50);
+                    reportArea.setEditable(false);
+                    JOptionPane.showMessageDialog(this, new JScrollPane(reportArea), "Bank Statement Import",
+                            result.errors.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                });
+            });
 
             payBtn.addActionListener(e -> {
                 String studentId = studentIdField.getText().trim();
@@ -536,47 +3965,46 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                double amount;
+                long amountCents;
                 try {
-                    amount = Double.parseDouble(amountStr);
+                    amountCents = Money.parse(amountStr);
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(this, "Invalid amount.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("students.txt");
-                boolean found = false;
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(";");
-                    if (parts.length >= 8 && parts[1].equals(studentId)) {
-                        double oldBalance = 0.0;
-                        try { oldBalance = Double.parseDouble(parts[7]); } catch (Exception ex) {}
-                        double newBalance = Math.max(0.0, oldBalance - amount);
-                        parts[7] = String.valueOf(newBalance);
-                        lines.set(i, String.join(";", parts));
-                        found = true;
-                        String receipt = "----------------------------------\n" +
-                                "Date: " + new Date() + "\n" +
-                                "Student: " + parts[0] + " (" + studentId + ")\n" +
-                                "Amount Paid: RM " + String.format("%.2f", amount) + "\n" +
-                                "New Balance: RM " + String.format("%.2f", newBalance) + "\n" +
-                                "Processed By: " + receptionistUsername + "\n" +
-                                "----------------------------------\n";
-                        FileManager.appendLine("all_receipts.txt", receipt);
-                        break;
+                Background.run(this, () -> TuitionService.INSTANCE.pay(studentId, amountCents, receptionistUsername), student -> {
+                    if (student != null) {
+                        JOptionPane.showMessageDialog(this, "Payment accepted and receipt generated!");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Student ID not found.");
                     }
-                }
-                if (found) {
-                    FileManager.writeAllLines("students.txt", lines);
-                    JOptionPane.showMessageDialog(this, "Payment accepted and receipt generated!");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Student ID not found.");
-                }
-                studentIdField.setText(""); amountField.setText("");
+                    studentIdField.setText(""); amountField.setText("");
+                });
             });
 
             return panel;
         }
 
+        // Applies a payment and records its receipt; returns null if the student does not exist.
+        // Payments for different students overlap only with -Datc.journal=true (see StudentRepository).
+        static StudentRecord acceptPayment(String studentId, long amountCents, String processedBy) {
+            StudentRepository repository = StudentRepository.getInstance();
+            java.util.concurrent.locks.Lock lock = repository.paymentLocks.get(studentId);
+            lock.lock();
+            try {
+                StudentRecord student = repository.applyPayment(studentId, amountCents);
+                if (student == null) return null;
+                Receipt receipt = new Receipt(System.currentTimeMillis(), studentId, student.name,
+                        amountCents, student.balanceCents, processedBy);
+                ReceiptLedger.getInstance().append(receipt);
+                IncomeRollups.getInstance().update();
+                FileManager.appendLine("all_receipts.txt", receipt.toText());
+                return student;
+            } finally {
+                lock.unlock();
+            }
+        }
+
         // Panel for deleting students who have completed their studies
         private JPanel createDeleteStudentPanel() {
             JPanel panel = new JPanel(new BorderLayout());
@@ -598,23 +4026,14 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "Student ID required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("students.txt");
-                boolean found = false;
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(";");
-                    if (parts.length >= 2 && parts[1].equals(studentId)) {
-                        lines.remove(i);
-                        found = true;
-                        break;
+                Background.run(this, () -> TuitionService.INSTANCE.delete(studentId), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(this, "Student deleted.");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Student ID not found.");
                     }
-                }
-                if (found) {
-                    FileManager.writeAllLines("students.txt", lines);
-                    JOptionPane.showMessageDialog(this, "Student deleted.");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Student ID not found.");
-                }
-                studentIdField.setText("");
+                    studentIdField.setText("");
+                });
             });
 
             return panel;
@@ -633,18 +4052,18 @@ public class UnifiedTuitionSystem {
             JTextField emailField = new JTextField(20);
             JButton updateBtn = new JButton("Update Profile");
 
-            String[] profile = null;
-            for (String line : FileManager.readAllLines("receptionist.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4 && parts[0].equals(receptionistUsername)) {
-                    profile = parts;
-                    break;
+            Background.run(this, () -> {
+                FieldCursor fields = new FieldCursor();
+                for (String line : FileManager.readAllLines("receptionist.txt")) {
+                    if (fields.reset(line, ',').fieldCount() >= 4 && fields.matches(0, receptionistUsername)) return line.split(",");
                 }
-            }
-            if (profile != null) {
-                nameField.setText(profile[2]);
-                emailField.setText(profile[3]);
-            }
+                return null;
+            }, profile -> {
+                if (profile != null) {
+                    nameField.setText(profile[2]);
+                    emailField.setText(profile[3]);
+                }
+            });
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(nameLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(nameField, gbc);
@@ -659,18 +4078,21 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("receptionist.txt");
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(",");
-                    if (parts.length >= 4 && parts[0].equals(receptionistUsername)) {
-                        parts[2] = newName;
-                        parts[3] = newEmail;
-                        lines.set(i, String.join(",", parts));
-                        break;
+                Background.update(this, "receptionist.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("receptionist.txt");
+                    FieldCursor fields = new FieldCursor();
+                    for (int i = 0; i < lines.size(); i++) {
+                        if (fields.reset(lines.get(i), ',').fieldCount() >= 4 && fields.matches(0, receptionistUsername)) {
+                            String[] parts = lines.get(i).split(",");
+                            parts[2] = newName;
+                            parts[3] = newEmail;
+                            lines.set(i, String.join(",", parts));
+                            break;
+                        }
                     }
-                }
-                FileManager.writeAllLines("receptionist.txt", lines);
-                JOptionPane.showMessageDialog(this, "Profile updated!");
+                    FileManager.writeAllLines("receptionist.txt", lines);
+                    return null;
+                }, done -> JOptionPane.showMessageDialog(this, "Profile updated!"));
             });
 
             return panel;
@@ -741,9 +4163,14 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                FileManager.appendLine("classes.txt", classId + "," + subject + "," + price + "," + schedule + "," + tutorUsername);
-                JOptionPane.showMessageDialog(this, "Class added!");
-                classIdField.setText(""); subjectField.setText(""); priceField.setText(""); scheduleField.setText("");
+                Background.update(this, "classes.txt", () -> {
+                    FileManager.appendLine("classes.txt", classId + "," + subject + "," + price + "," + schedule + "," + tutorUsername);
+                    ClassIndex.getInstance().invalidate();
+                    return null;
+                }, done -> {
+                    JOptionPane.showMessageDialog(this, "Class added!");
+                    classIdField.setText(""); subjectField.setText(""); priceField.setText(""); scheduleField.setText("");
+                });
             });
 
             return panel;
@@ -782,26 +4209,35 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("classes.txt");
-                boolean found = false;
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(",");
-                    if (parts.length >= 5 && parts[0].equals(classId) && parts[4].equals(tutorUsername)) {
-                        parts[1] = newSubject;
-                        parts[2] = newPrice;
-                        parts[3] = newSchedule;
-                        lines.set(i, String.join(",", parts));
-                        found = true;
-                        break;
+                Background.update(this, "classes.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("classes.txt");
+                    boolean found = false;
+                    FieldCursor fields = new FieldCursor();
+                    for (int i = 0; i < lines.size(); i++) {
+                        fields.reset(lines.get(i), ',');
+                        if (fields.fieldCount() >= 5 && fields.matches(0, classId) && fields.matches(4, tutorUsername)) {
+                            String[] parts = lines.get(i).split(",");
+                            parts[1] = newSubject;
+                            parts[2] = newPrice;
+                            parts[3] = newSchedule;
+                            lines.set(i, String.join(",", parts));
+                            found = true;
+                            break;
+                        }
                     }
-                }
-                if (found) {
-                    FileManager.writeAllLines("classes.txt", lines);
-                    JOptionPane.showMessageDialog(this, "Class updated!");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Class ID not found or not owned by you.");
-                }
-                classIdField.setText(""); newSubjectField.setText(""); newPriceField.setText(""); newScheduleField.setText("");
+                    if (found) {
+                        FileManager.writeAllLines("classes.txt", lines);
+                        ClassIndex.getInstance().invalidate();
+                    }
+                    return found;
+                }, found -> {
+                    if (found) {
+                        JOptionPane.showMessageDialog(this, "Class updated!");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Class ID not found or not owned by you.");
+                    }
+                    classIdField.setText(""); newSubjectField.setText(""); newPriceField.setText(""); newScheduleField.setText("");
+                });
             });
 
             return panel;
@@ -828,23 +4264,31 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "Class ID required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("classes.txt");
-                boolean found = false;
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(",");
-                    if (parts.length >= 5 && parts[0].equals(classId) && parts[4].equals(tutorUsername)) {
-                        lines.remove(i);
-                        found = true;
-                        break;
+                Background.update(this, "classes.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("classes.txt");
+                    boolean found = false;
+                    FieldCursor fields = new FieldCursor();
+                    for (int i = 0; i < lines.size(); i++) {
+                        fields.reset(lines.get(i), ',');
+                        if (fields.fieldCount() >= 5 && fields.matches(0, classId) && fields.matches(4, tutorUsername)) {
+                            lines.remove(i);
+                            found = true;
+                            break;
+                        }
                     }
-                }
-                if (found) {
-                    FileManager.writeAllLines("classes.txt", lines);
-                    JOptionPane.showMessageDialog(this, "Class deleted.");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Class ID not found or not owned by you.");
-                }
-                classIdField.setText("");
+                    if (found) {
+                        FileManager.writeAllLines("classes.txt", lines);
+                        ClassIndex.getInstance().invalidate();
+                    }
+                    return found;
+                }, found -> {
+                    if (found) {
+                        JOptionPane.showMessageDialog(this, "Class deleted.");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Class ID not found or not owned by you.");
+                    }
+                    classIdField.setText("");
+                });
             });
 
             return panel;
@@ -866,37 +4310,29 @@ public class UnifiedTuitionSystem {
             panel.add(refreshBtn, BorderLayout.SOUTH);
 
             refreshBtn.addActionListener(e -> {
-                studentsArea.setText(getEnrolledStudentsList());
+                Background.run(this, this::getEnrolledStudentsList, studentsArea::setText);
             });
 
-            studentsArea.setText(getEnrolledStudentsList());
+            Background.run(this, this::getEnrolledStudentsList, studentsArea::setText);
 
             return panel;
         }
 
         private String getEnrolledStudentsList() {
-            Set<String> mySubjects = new HashSet<>();
-            for (String line : FileManager.readAllLines("classes.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 5 && parts[4].equals(tutorUsername)) {
-                    mySubjects.add(parts[1]);
-                }
+            return TuitionService.INSTANCE.enrolledStudents(tutorUsername);
+        }
+
+        static String getEnrolledStudentsList(String tutorUsername) {
+            Set<String> mySubjects = new LinkedHashSet<>();
+            for (String[] parts : ClassIndex.getInstance().forTutor(tutorUsername)) {
+                mySubjects.add(parts[1]);
             }
             StringBuilder sb = new StringBuilder();
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 7) {
-                    String name = parts[0];
-                    String id = parts[1];
-                    String level = parts[5];
-                    String[] subjects = parts[6].split(",");
-                    for (String subj : subjects) {
-                        if (mySubjects.contains(subj.trim())) {
-                            sb.append("Student: ").append(name)
-                              .append(" (").append(id).append("), Level: ").append(level)
-                              .append(", Subject: ").append(subj.trim()).append("\n");
-                        }
-                    }
+            for (String subj : mySubjects) {
+                for (StudentRecord student : StudentRepository.getInstance().findBySubject(subj)) {
+                    sb.append("Student: ").append(student.name)
+                      .append(" (").append(student.id).append("), Level: ").append(student.level)
+                      .append(", Subject: ").append(subj).append("\n");
                 }
             }
             if (sb.length() == 0) {
@@ -918,18 +4354,18 @@ public class UnifiedTuitionSystem {
             JTextField contactField = new JTextField(20);
             JButton updateBtn = new JButton("Update Profile");
 
-            String[] profile = null;
-            for (String line : FileManager.readAllLines("tutors.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4 && parts[0].equals(tutorUsername)) {
-                    profile = parts;
-                    break;
+            Background.run(this, () -> {
+                FieldCursor fields = new FieldCursor();
+                for (String line : FileManager.readAllLines("tutors.txt")) {
+                    if (fields.reset(line, ',').fieldCount() >= 4 && fields.matches(0, tutorUsername)) return line.split(",");
                 }
-            }
-            if (profile != null) {
-                nameField.setText(profile[2]);
-                contactField.setText(profile[3]);
-            }
+                return null;
+            }, profile -> {
+                if (profile != null) {
+                    nameField.setText(profile[2]);
+                    contactField.setText(profile[3]);
+                }
+            });
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(nameLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(nameField, gbc);
@@ -944,18 +4380,21 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("tutors.txt");
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(",");
-                    if (parts.length >= 4 && parts[0].equals(tutorUsername)) {
-                        parts[2] = newName;
-                        parts[3] = newContact;
-                        lines.set(i, String.join(",", parts));
-                        break;
+                Background.update(this, "tutors.txt", () -> {
+                    List<String> lines = FileManager.readAllLines("tutors.txt");
+                    FieldCursor fields = new FieldCursor();
+                    for (int i = 0; i < lines.size(); i++) {
+                        if (fields.reset(lines.get(i), ',').fieldCount() >= 4 && fields.matches(0, tutorUsername)) {
+                            String[] parts = lines.get(i).split(",");
+                            parts[2] = newName;
+                            parts[3] = newContact;
+                            lines.set(i, String.join(",", parts));
+                            break;
+                        }
                     }
-                }
-                FileManager.writeAllLines("tutors.txt", lines);
-                JOptionPane.showMessageDialog(this, "Profile updated!");
+                    FileManager.writeAllLines("tutors.txt", lines);
+                    return null;
+                }, done -> JOptionPane.showMessageDialog(this, "Profile updated!"));
             });
 
             return panel;
@@ -969,34 +4408,36 @@ public class UnifiedTuitionSystem {
         JLabel welcomeLabel;
         JTabbedPane tabbedPane;
 
-        public StudentDashboard(String username) {
-            // Find student by username (could be name or ID)
-            String[] student = null;
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 3 && (parts[0].equals(username) || parts[1].equals(username))) {
-                    student = parts;
-                    break;
-                }
-            }
-            if (student == null) {
-                JOptionPane.showMessageDialog(null, "Student not found.");
-                dispose();
-                return;
-            }
-            this.studentId = student[1];
-            this.studentName = student[0];
-
+        // studentId comes from the login session, which settles which of several students
+        // with the same name this is
+        public StudentDashboard(String studentId) {
             setTitle("Student Dashboard - ATC Tuition Centre");
             setSize(800, 600);
             setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             setLocationRelativeTo(null);
             setLayout(new BorderLayout());
 
-            welcomeLabel = new JLabel("Welcome, " + studentName + " (" + studentId + ")!", SwingConstants.CENTER);
+            welcomeLabel = new JLabel("Loading...", SwingConstants.CENTER);
             welcomeLabel.setFont(new Font("Arial", Font.BOLD, 18));
             add(welcomeLabel, BorderLayout.NORTH);
 
+            // The first lookup may load the whole student table, or go to the data
+            // server, so it runs off the EDT
+            Background.run(this, () -> TuitionService.INSTANCE.student(studentId), student -> {
+                if (student == null) {
+                    JOptionPane.showMessageDialog(null, "Student not found.");
+                    dispose();
+                    return;
+                }
+                showStudent(student);
+            });
+        }
+
+        private void showStudent(StudentRecord student) {
+            this.studentId = student.id;
+            this.studentName = student.name;
+            welcomeLabel.setText("Welcome, " + studentName + " (" + studentId + ")!");
+
             tabbedPane = new JTabbedPane();
             tabbedPane.addTab("Class Schedule", createSchedulePanel());
             tabbedPane.addTab("Subject Change Request", createRequestPanel());
@@ -1004,6 +4445,7 @@ public class UnifiedTuitionSystem {
             tabbedPane.addTab("Profile", createProfilePanel());
 
             add(tabbedPane, BorderLayout.CENTER);
+            revalidate();
         }
 
         // Panel for viewing class schedule
@@ -1022,35 +4464,24 @@ public class UnifiedTuitionSystem {
             panel.add(refreshBtn, BorderLayout.SOUTH);
 
             refreshBtn.addActionListener(e -> {
-                scheduleArea.setText(getSchedule());
+                Background.run(this, this::getSchedule, scheduleArea::setText);
             });
 
-            scheduleArea.setText(getSchedule());
+            Background.run(this, this::getSchedule, scheduleArea::setText);
 
             return panel;
         }
 
         private String getSchedule() {
             StringBuilder sb = new StringBuilder();
-            String[] student = null;
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 3 && (parts[0].equals(studentName) || parts[1].equals(studentId))) {
-                    student = parts;
-                    break;
-                }
-            }
+            StudentRecord student = TuitionService.INSTANCE.student(studentId);
             if (student == null) return "No schedule found.";
-            String[] subjects = student[6].split(",");
-            for (String subj : subjects) {
-                for (String cline : FileManager.readAllLines("classes.txt")) {
-                    String[] cparts = cline.split(",");
-                    if (cparts.length >= 5 && cparts[1].equals(subj.trim())) {
-                        sb.append("Subject: ").append(cparts[1])
-                          .append(", Schedule: ").append(cparts[3])
-                          .append(", Tutor: ").append(cparts[4])
-                          .append("\n");
-                    }
+            for (int subject : student.subjectList().codes) {
+                for (String[] cparts : ClassIndex.getInstance().forSubject(SubjectCatalogue.subjectName(subject))) {
+                    sb.append("Subject: ").append(cparts[1])
+                      .append(", Schedule: ").append(cparts[3])
+                      .append(", Tutor: ").append(cparts[4])
+                      .append("\n");
                 }
             }
             if (sb.length() == 0) sb.append("No classes scheduled for your subjects.");
@@ -1083,13 +4514,15 @@ public class UnifiedTuitionSystem {
             JButton deleteBtn = new JButton("Delete Selected Request");
             panel.add(deleteBtn, BorderLayout.SOUTH);
 
-            List<String> requests = FileManager.readAllLines("enrollments.txt");
-            for (String req : requests) {
-                String[] parts = req.split(",");
-                if (parts.length == 3 && parts[1].equals(studentId)) {
-                    requestListModel.addElement("Drop: " + parts[2] + ", Add: " + parts[0]);
+            Background.run(this, () -> FileManager.readAllLines("enrollments.txt"), requests -> {
+                FieldCursor fields = new FieldCursor();
+                for (String req : requests) {
+                    if (fields.reset(req, ',').fieldCount() == 3 && fields.matches(1, studentId)) {
+                        String[] parts = req.split(",");
+                        requestListModel.addElement("Drop: " + parts[2] + ", Add: " + parts[0]);
+                    }
                 }
-            }
+            });
 
             sendBtn.addActionListener(e -> {
                 String drop = dropField.getText().trim();
@@ -1098,9 +4531,13 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "Both fields required.");
                     return;
                 }
-                FileManager.appendLine("enrollments.txt", add + "," + studentId + "," + drop);
-                requestListModel.addElement("Drop: " + drop + ", Add: " + add);
-                dropField.setText(""); addField.setText("");
+                Background.update(this, "enrollments.txt", () -> {
+                    FileManager.appendLine("enrollments.txt", add + "," + studentId + "," + drop);
+                    return null;
+                }, done -> {
+                    requestListModel.addElement("Drop: " + drop + ", Add: " + add);
+                    dropField.setText(""); addField.setText("");
+                });
             });
 
             deleteBtn.addActionListener(e -> {
@@ -1111,9 +4548,12 @@ public class UnifiedTuitionSystem {
                 if (parts.length == 2) {
                     String drop = parts[0];
                     String add = parts[1];
-                    List<String> lines = FileManager.readAllLines("enrollments.txt");
-                    lines.removeIf(l -> l.equals(add + "," + studentId + "," + drop));
-                    FileManager.writeAllLines("enrollments.txt", lines);
+                    Background.update(this, "enrollments.txt", () -> {
+                        List<String> lines = FileManager.readAllLines("enrollments.txt");
+                        lines.removeIf(l -> l.equals(add + "," + studentId + "," + drop));
+                        FileManager.writeAllLines("enrollments.txt", lines);
+                        return null;
+                    }, done -> {});
                 }
                 requestListModel.remove(idx);
             });
@@ -1137,38 +4577,26 @@ public class UnifiedTuitionSystem {
             panel.add(refreshBtn, BorderLayout.SOUTH);
 
             refreshBtn.addActionListener(e -> {
-                paymentArea.setText(getPaymentStatus());
+                Background.run(this, this::getPaymentStatus, paymentArea::setText);
             });
 
-            paymentArea.setText(getPaymentStatus());
+            Background.run(this, this::getPaymentStatus, paymentArea::setText);
 
             return panel;
         }
 
         private String getPaymentStatus() {
             StringBuilder sb = new StringBuilder();
-            String[] student = null;
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 8 && (parts[0].equals(studentName) || parts[1].equals(studentId))) {
-                    student = parts;
-                    break;
-                }
-            }
+            StudentRecord student = TuitionService.INSTANCE.student(studentId);
             if (student == null) return "No payment record found.";
-            sb.append("Name: ").append(student[0]).append("\n");
-            sb.append("Student ID: ").append(student[1]).append("\n");
-            sb.append("Subjects: ").append(student[6]).append("\n");
-            sb.append("Outstanding Balance: RM ").append(student[7]).append("\n");
+            sb.append("Name: ").append(student.name).append("\n");
+            sb.append("Student ID: ").append(student.id).append("\n");
+            sb.append("Subjects: ").append(student.subjects).append("\n");
+            sb.append("Outstanding Balance: RM ");
+            Money.append(sb, student.balanceCents).append("\n");
             sb.append("\nRecent Payments:\n");
-            List<String> receipts = FileManager.readAllLines("all_receipts.txt");
-            int count = 0;
-            for (int i = receipts.size() - 1; i >= 0 && count < 5; i--) {
-                String rec = receipts.get(i);
-                if (rec.contains(student[1]) || rec.contains(student[0])) {
-                    sb.append(rec).append("\n");
-                    count++;
-                }
+            for (String payment : TuitionService.INSTANCE.recentPayments(student.id, 5)) {
+                sb.append(payment).append("\n");
             }
             return sb.toString();
         }
@@ -1188,19 +4616,18 @@ public class UnifiedTuitionSystem {
             JTextField addressField = new JTextField(20);
             JButton updateBtn = new JButton("Update Profile");
 
-            String[] profile = null;
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 5 && (parts[0].equals(studentName) || parts[1].equals(studentId))) {
-                    profile = parts;
-                    break;
+            // Version of the record shown in the fields, so an edit made meanwhile at
+            // another desk is not overwritten
+            int[] shownVersion = {0};
+            Runnable loadProfile = () -> Background.run(this, () -> TuitionService.INSTANCE.student(studentId), profile -> {
+                if (profile != null) {
+                    nameField.setText(profile.name);
+                    contactField.setText(profile.contact);
+                    addressField.setText(profile.address);
+                    shownVersion[0] = profile.profileVersion;
                 }
-            }
-            if (profile != null) {
-                nameField.setText(profile[0]);
-                contactField.setText(profile[3]);
-                addressField.setText(profile[4]);
-            }
+            });
+            loadProfile.run();
 
             gbc.gridx = 0; gbc.gridy = 0; panel.add(nameLabel, gbc);
             gbc.gridx = 1; gbc.gridy = 0; panel.add(nameField, gbc);
@@ -1218,19 +4645,19 @@ public class UnifiedTuitionSystem {
                     JOptionPane.showMessageDialog(this, "All fields required.");
                     return;
                 }
-                List<String> lines = FileManager.readAllLines("students.txt");
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split(";");
-                    if (parts.length >= 5 && (parts[0].equals(studentName) || parts[1].equals(studentId))) {
-                        parts[0] = newName;
-                        parts[3] = newContact;
-                        parts[4] = newAddress;
-                        lines.set(i, String.join(";", parts));
-                        break;
+                Background.run(this, () -> TuitionService.INSTANCE
+                        .updateProfile(studentId, shownVersion[0], newName, newContact, newAddress), result -> {
+                    if (result == StudentRepository.UpdateResult.UPDATED) {
+                        shownVersion[0]++;
+                        studentName = newName;
+                        JOptionPane.showMessageDialog(this, "Profile updated!");
+                    } else if (result == StudentRepository.UpdateResult.CONFLICT) {
+                        JOptionPane.showMessageDialog(this, "Your details were changed elsewhere. The latest details are shown; please make your changes again.");
+                        loadProfile.run();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Student record not found.");
                     }
-                }
-                FileManager.writeAllLines("students.txt", lines);
-                JOptionPane.showMessageDialog(this, "Profile updated!");
+                });
             });
 
             return panel;
@@ -1274,40 +4701,24 @@ public class UnifiedTuitionSystem {
         private void handleLogin() {
             String username = usernameField.getText().trim();
             String password = new String(passwordField.getPassword());
-            String role = detectRole(username, password);
-            if (role != null) {
-                messageLabel.setText("");
-                dispose();
-                launchDashboard(role, username);
-            } else {
-                loginAttempts++;
-                if (loginAttempts >= MAX_ATTEMPTS) {
-                    JOptionPane.showMessageDialog(this, "Maximum login attempts reached.", "Login Failed", JOptionPane.ERROR_MESSAGE);
-                    System.exit(0);
+            // In client mode this is a round trip to the data server, so keep it off the EDT
+            Background.run(this, () -> TuitionService.INSTANCE.login(username, password), session -> {
+                if (session != null) {
+                    messageLabel.setText("");
+                    dispose();
+                    launchDashboard(session.role, session.user);
                 } else {
-                    messageLabel.setText("Invalid credentials. Attempts left: " + (MAX_ATTEMPTS - loginAttempts));
+                    loginAttempts++;
+                    if (loginAttempts >= MAX_ATTEMPTS) {
+                        JOptionPane.showMessageDialog(this, "Maximum login attempts reached.", "Login Failed", JOptionPane.ERROR_MESSAGE);
+                        System.exit(0);
+                    } else {
+                        messageLabel.setText("Invalid credentials. Attempts left: " + (MAX_ATTEMPTS - loginAttempts));
+                    }
                 }
-            }
-        }
-        private String detectRole(String username, String password) {
-            for (String line : FileManager.readAllLines("admin.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(password)) return "admin";
-            }
-            for (String line : FileManager.readAllLines("receptionist.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(password)) return "receptionist";
-            }
-            for (String line : FileManager.readAllLines("tutors.txt")) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(password)) return "tutor";
-            }
-            for (String line : FileManager.readAllLines("students.txt")) {
-                String[] parts = line.split(";");
-                if (parts.length >= 3 && (parts[0].equals(username) || parts[1].equals(username)) && parts[2].equals(password)) return "student";
-            }
-            return null;
+            });
         }
+        // username is the session's user, so a student's ID
         private void launchDashboard(String role, String username) {
             SwingUtilities.invokeLater(() -> {
                 switch (role) {
@@ -1342,7 +4753,53 @@ public class UnifiedTuitionSystem {
     }
 
     public static void main(String[] args) {
-        initializeDataFiles();
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("--students-to-binary") || args[0].equals("--students-to-text"))) {
+            convertStudents(args[0].equals("--students-to-binary"));
+            return;
+        }
+        if (TuitionService.INSTANCE instanceof LocalService) {
+            initializeDataFiles();
+            // Build the login and student indexes before the first login attempt
+            CredentialIndex.getInstance();
+            StudentRepository.getInstance();
+            StudentIdSequence.getInstance();
+        }
         SwingUtilities.invokeLater(() -> new LoginPanel().setVisible(true));
     }
+
+    // --students-to-binary / --students-to-text: converts between students.txt and students.bin
+    static void convertStudents(boolean toBinary) {
+        try {
+            if (toBinary) {
+                StudentBinaryFile.fromText("students.txt", "students.bin");
+            } else {
+                StudentBinaryFile.toText("students.bin", "students.txt");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not convert the student file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --server [port] [bind address]: owns the data files and serves the desks
+    static void runServer(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DataServer.DEFAULT_PORT;
+        String host = args.length > 2 ? args[2] : "localhost";
+        initializeDataFiles();
+        CredentialIndex.getInstance();
+        StudentRepository.getInstance();
+        StudentIdSequence.getInstance();
+        IncomeRollups.getInstance();
+        try {
+            DataServer.start(host, port, new LocalService());
+        } catch (IOException e) {
+            System.err.println("Could not start the data server on " + host + ":" + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Tuition data server listening on " + host + ":" + port);
+    }
 } 
\ No newline at end of file
@@ -48,12 +48,10 @@ class FileManager {
     }
 
     public static void writeAllLines(String filename, List<String> lines) {
-        try {
-            if (filename.equals("tutors.txt") || filename.equals("classes.txt") || filename.equals("students.txt") || filename.equals("enrollments.txt")) {
-                filename = "C:/Users/User/TutorCentreSystem/JAVA-apu-/" + filename;
-            }
-            Files.write(Paths.get(filename), lines);
-        } catch (IOException e) {
+        if (filename.equals("tutors.txt") || filename.equals("classes.txt") || filename.equals("students.txt") || filename.equals("enrollments.txt")) {
+            filename = "C:/Users/User/TutorCentreSystem/JAVA-apu-/" + filename;
+        }
+        if (!UnifiedTuitionSystem.FileManager.writeLinesAtomically(filename, lines)) {
             System.out.println("Error writing file: " + filename);
         }
     }
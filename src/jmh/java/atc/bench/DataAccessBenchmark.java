@@ -0,0 +1,47 @@
+package atc.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.*;
+
+// JMH front end for the workloads in TuitionBenchmark; see there for how to build and
+// run it. JMH does not run benchmarks in the unnamed package, and code in a package
+// cannot name classes there, so the workloads are looked up once per trial by reflection.
+// Each size and workload gets fresh JVMs with their own singletons, and the result of
+// every call goes to JMH's Blackhole so the work cannot be optimised away.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Datc.durability=NONE", "-Djava.awt.headless=true"})
+public class DataAccessBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"read-lines-flat", "read-lines-mapped", "parse-split", "parse-mapped", "parse-binary",
+            "load-text", "load-binary", "balances-split", "balances-mapped", "format-string", "format-money",
+            "lookup-mapped-scan", "lookup-file-scan", "lookup-split-cached", "lookup-cursor-cached",
+            "lookup-repository", "role-students", "role-tutor", "income-report", "enrolled-students"})
+    String workload;
+
+    private Supplier<Object> task;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void prepare() throws ReflectiveOperationException {
+        Map<String, Supplier<Object>> workloads = (Map<String, Supplier<Object>>)
+                Class.forName("TuitionBenchmark").getMethod("prepare", int.class).invoke(null, size);
+        task = workloads.get(workload);
+        if (task == null) {
+            throw new IllegalArgumentException("No workload " + workload + ", expected one of " + workloads.keySet());
+        }
+    }
+
+    @Benchmark
+    public Object run() {
+        return task.get();
+    }
+}